@@ -0,0 +1,347 @@
+package AbstractClassVsInterface;
+
+import BigO.Benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+    The runtime cost of calling a method through an interface vs through an abstract class (the notes in JavaInterface
+    compare them only as a matter of design).
+
+    A call to a method which may be overridden (a VIRTUAL call) has to find the method in the receiver's class at run
+    time -> for an abstract class through the VTABLE (an array of methods at a fixed index), and for an interface
+    through the ITABLE (which first has to be searched for the interface). But the JIT rarely does either. It records
+    the classes of the receivers seen at each CALL SITE, and then;
+        MONOMORPHIC     -> one class seen -> it checks the class and INLINES the method (copies its body into the
+                           caller), which removes the call altogether and lets the body be optimized with the caller.
+        BIMORPHIC       -> two classes seen -> it inlines both, behind an if on the class.
+        MEGAMORPHIC     -> more -> it makes a real vtable or itable call, so nothing is inlined.
+    So the kind of call site usually matters far more than interface vs abstract class. Static methods and private
+    methods cannot be overridden, so they are always inlined (if small and hot).
+    One difference -> if no loaded class overrides a method of a class, the JIT knows there is only one method to call
+    (CLASS HIERARCHY ANALYSIS), so it inlines it even at a megamorphic call site (and undoes that if a class which
+    overrides it is loaded later). HotSpot does not do this for a default method, which is inherited through an
+    interface.
+
+    Each case below is run in its OWN JVM, so that the receiver profiles of one case do not pollute another (the JIT
+    keeps one profile per call site, and a call site shared between cases would be megamorphic in all of them). The
+    child JVM runs with -XX:+PrintInlining, and this parses its log to report whether the C2
+    compiler inlined the call.
+
+    The cases;
+        calculatePay                -> an abstract method, implemented by every class.
+        getString (inherited)       -> a default method (or a concrete method of the abstract class) which no class
+                                       overrides.
+        getString (overridden)      -> the same, overridden by every class.
+        static                      -> JavaInterface.getInterfaceNumber() and the abstract class's static method.
+        diamond (most specific)     -> a class implementing Left and Right, which both extend Named, where only Left
+                                       overrides Named's default -> Left's is used, as the notes describe.
+        diamond (X.super)           -> a class implementing two unrelated interfaces with the same default method,
+                                       which must override it, and calls First.super.getString().
+
+    Usage: java AbstractClassVsInterface.DispatchBenchmark
+ */
+public class DispatchBenchmark {
+
+    static final int TARGETS = 1 << 10;
+
+    // ---- the interface hierarchy ----
+
+    // P for plain (inherits getString), O for overrides getString.
+    static final class P1 implements JavaInterface { public Double calculatePay(){ return 1.0; } }
+    static final class P2 implements JavaInterface { public Double calculatePay(){ return 2.0; } }
+    static final class P3 implements JavaInterface { public Double calculatePay(){ return 3.0; } }
+    static final class P4 implements JavaInterface { public Double calculatePay(){ return 4.0; } }
+
+    static final class O1 implements JavaInterface {
+        public Double calculatePay(){ return 1.0; }
+        public String getString(){ return "O1"; }
+    }
+    static final class O2 implements JavaInterface {
+        public Double calculatePay(){ return 2.0; }
+        public String getString(){ return "O2 "; }
+    }
+    static final class O3 implements JavaInterface {
+        public Double calculatePay(){ return 3.0; }
+        public String getString(){ return "O3  "; }
+    }
+    static final class O4 implements JavaInterface {
+        public Double calculatePay(){ return 4.0; }
+        public String getString(){ return "O4   "; }
+    }
+
+    // ---- the equivalent abstract class hierarchy ----
+
+    abstract static class AbstractEmployee {
+        static final int constantNum = 100;
+
+        abstract Double calculatePay();
+
+        String getString(){
+            return "A String";
+        }
+
+        static int getClassNumber(){
+            return constantNum;
+        }
+    }
+
+    static final class A1 extends AbstractEmployee { Double calculatePay(){ return 1.0; } }
+    static final class A2 extends AbstractEmployee { Double calculatePay(){ return 2.0; } }
+    static final class A3 extends AbstractEmployee { Double calculatePay(){ return 3.0; } }
+    static final class A4 extends AbstractEmployee { Double calculatePay(){ return 4.0; } }
+
+    static final class B1 extends AbstractEmployee {
+        Double calculatePay(){ return 1.0; }
+        String getString(){ return "B1"; }
+    }
+    static final class B2 extends AbstractEmployee {
+        Double calculatePay(){ return 2.0; }
+        String getString(){ return "B2 "; }
+    }
+    static final class B3 extends AbstractEmployee {
+        Double calculatePay(){ return 3.0; }
+        String getString(){ return "B3  "; }
+    }
+    static final class B4 extends AbstractEmployee {
+        Double calculatePay(){ return 4.0; }
+        String getString(){ return "B4   "; }
+    }
+
+    // ---- the diamonds ----
+
+    interface Named {
+        default String getString(){ return "Named"; }
+    }
+    interface Left extends Named {
+        default String getString(){ return "Left"; }
+    }
+    interface Right extends Named {
+    }
+    static final class MostSpecific implements Left, Right {
+    }
+
+    interface First {
+        default String getString(){ return "First"; }
+    }
+    interface Second {
+        default String getString(){ return "Second"; }
+    }
+    static final class BothDefaults implements First, Second {
+        // without this the class does not compile, since neither default is more specific than the other.
+        public String getString(){ return First.super.getString(); }
+    }
+
+    // ---- the call sites -> one method per case, each timed in a child JVM ----
+
+    static long interfacePay(JavaInterface[] targets){
+        double sum = 0;
+        for(JavaInterface target : targets) sum += target.calculatePay();
+        return (long) sum;
+    }
+
+    static long interfaceString(JavaInterface[] targets){
+        long sum = 0;
+        for(JavaInterface target : targets) sum += target.getString().length();
+        return sum;
+    }
+
+    static long interfaceStatic(JavaInterface[] targets){
+        long sum = 0;
+        for(int i = 0; i < targets.length; i++) sum += JavaInterface.getInterfaceNumber();
+        return sum;
+    }
+
+    static long abstractPay(AbstractEmployee[] targets){
+        double sum = 0;
+        for(AbstractEmployee target : targets) sum += target.calculatePay();
+        return (long) sum;
+    }
+
+    static long abstractString(AbstractEmployee[] targets){
+        long sum = 0;
+        for(AbstractEmployee target : targets) sum += target.getString().length();
+        return sum;
+    }
+
+    static long abstractStatic(AbstractEmployee[] targets){
+        long sum = 0;
+        for(int i = 0; i < targets.length; i++) sum += AbstractEmployee.getClassNumber();
+        return sum;
+    }
+
+    static long mostSpecific(Right[] targets){
+        long sum = 0;
+        for(Right target : targets) sum += target.getString().length();
+        return sum;
+    }
+
+    static long bothDefaults(First[] targets){
+        long sum = 0;
+        for(First target : targets) sum += target.getString().length();
+        return sum;
+    }
+
+    // a case -> the row it belongs to, the call site method, and the method it calls (as named in the inlining log).
+    static final class Case {
+        final String row;
+        final String callSite;
+        final String callee;
+
+        Case(String row, String callSite, String callee){
+            this.row = row;
+            this.callSite = callSite;
+            this.callee = callee;
+        }
+    }
+
+    static final String[] SHAPES = {"monomorphic", "bimorphic", "megamorphic"};
+    static final Map<String, Case> CASES = new LinkedHashMap<>();
+
+    static {
+        add(new Case("interface calculatePay", "interfacePay", "calculatePay"));
+        add(new Case("abstract calculatePay", "abstractPay", "calculatePay"));
+        add(new Case("interface getString (inherited)", "interfaceString", "getString"));
+        add(new Case("abstract getString (inherited)", "abstractString", "getString"));
+        add(new Case("interface getString (overridden)", "interfaceString", "getString"));
+        add(new Case("abstract getString (overridden)", "abstractString", "getString"));
+        add(new Case("interface static", "interfaceStatic", "getInterfaceNumber"));
+        add(new Case("abstract static", "abstractStatic", "getClassNumber"));
+        add(new Case("diamond (most specific)", "mostSpecific", "getString"));
+        add(new Case("diamond (X.super)", "bothDefaults", "getString"));
+    }
+
+    static void add(Case c){
+        CASES.put(c.row, c);
+    }
+
+    // the targets of a case, of 1, 2 or 4 classes (by shape), interleaved so that the branch predictor cannot help.
+    static Object[] targets(String row, String shape){
+        int classes = shape.equals("monomorphic") ? 1 : shape.equals("bimorphic") ? 2 : 4;
+        Object[] targets;
+        switch(row){
+            case "interface calculatePay":
+            case "interface getString (inherited)":
+            case "interface static":
+                targets = new JavaInterface[TARGETS];
+                fill(targets, classes, new P1(), new P2(), new P3(), new P4());
+                break;
+            case "interface getString (overridden)":
+                targets = new JavaInterface[TARGETS];
+                fill(targets, classes, new O1(), new O2(), new O3(), new O4());
+                break;
+            case "abstract calculatePay":
+            case "abstract getString (inherited)":
+            case "abstract static":
+                targets = new AbstractEmployee[TARGETS];
+                fill(targets, classes, new A1(), new A2(), new A3(), new A4());
+                break;
+            case "abstract getString (overridden)":
+                targets = new AbstractEmployee[TARGETS];
+                fill(targets, classes, new B1(), new B2(), new B3(), new B4());
+                break;
+            case "diamond (most specific)":
+                targets = new Right[TARGETS];
+                fill(targets, 1, new MostSpecific());
+                break;
+            default:
+                targets = new First[TARGETS];
+                fill(targets, 1, new BothDefaults());
+        }
+        return targets;
+    }
+
+    static void fill(Object[] targets, int classes, Object... instances){
+        for(int i = 0; i < targets.length; i++) targets[i] = instances[(int) ((i * 0x9E3779B9L >>> 7) % classes)];
+    }
+
+    static Benchmark.Operation loop(Case c, Object[] targets){
+        switch(c.callSite){
+            case "interfacePay": return i -> interfacePay((JavaInterface[]) targets);
+            case "interfaceString": return i -> interfaceString((JavaInterface[]) targets);
+            case "interfaceStatic": return i -> interfaceStatic((JavaInterface[]) targets);
+            case "abstractPay": return i -> abstractPay((AbstractEmployee[]) targets);
+            case "abstractString": return i -> abstractString((AbstractEmployee[]) targets);
+            case "abstractStatic": return i -> abstractStatic((AbstractEmployee[]) targets);
+            case "mostSpecific": return i -> mostSpecific((Right[]) targets);
+            default: return i -> bothDefaults((First[]) targets);
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if(args.length == 3 && args[0].equals("--child")){
+            // in the child JVM -> time one case, and print the result for the parent to read. It goes to System.err, since
+            // the JIT writes its log to System.out (from its own threads, so it could break into the middle of a line).
+            Case c = CASES.get(args[1]);
+            Benchmark.Result result = Benchmark.measure(loop(c, targets(c.row, args[2])), 1);
+            System.err.println(result.nanosPerOp() / TARGETS + " " + result.bytesPerOp() / TARGETS);
+            return;
+        }
+        System.out.println("ns per call, B per call, and whether C2 inlined the call (from -XX:+PrintInlining)");
+        System.out.println();
+        StringBuilder header = new StringBuilder(String.format("%-36s", "Call"));
+        for(String shape : SHAPES) header.append(String.format("%-28s", shape));
+        System.out.println(header.toString().trim());
+        for(Case c : CASES.values()){
+            boolean receiverless = c.callSite.endsWith("Static") || c.row.startsWith("diamond");
+            StringBuilder line = new StringBuilder(String.format("%-36s", c.row));
+            for(String shape : SHAPES){
+                line.append(String.format("%-28s", receiverless && !shape.equals("monomorphic") ? "-" : runChild(c, shape)));
+            }
+            System.out.println(line.toString().trim());
+        }
+    }
+
+    static String runChild(Case c, String shape) throws IOException, InterruptedException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        List<String> command = new ArrayList<>();
+        command.add(java);
+        command.add("-XX:+UnlockDiagnosticVMOptions");
+        command.add("-XX:+PrintInlining");
+        for(String property : new String[]{"bigo.warmupMillis", "bigo.measureMillis"}){
+            if(System.getProperty(property) != null) command.add("-D" + property + "=" + System.getProperty(property));
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(DispatchBenchmark.class.getName());
+        command.add("--child");
+        command.add(c.row);
+        command.add(shape);
+        File errors = File.createTempFile("dispatch", ".txt");
+        try {
+            Process process = new ProcessBuilder(command).redirectError(errors).start();
+            String verdict = "?";
+            try(BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))){
+                String line;
+                while((line = reader.readLine()) != null) verdict = inlined(line, c.callee, verdict);
+            }
+            List<String> result = Files.readAllLines(errors.toPath());
+            if(process.waitFor() != 0 || result.isEmpty()) return "failed";
+            String[] values = result.get(result.size() - 1).split(" ");
+            return String.format("%s %s %s", Benchmark.formatNanos(Double.parseDouble(values[0])),
+                    Benchmark.formatBytes(Double.parseDouble(values[1])), verdict);
+        } finally {
+            errors.delete();
+        }
+    }
+
+    // the verdict of a line of the -XX:+PrintInlining log on the call of callee, eg.
+    //      "@ 27   AbstractClassVsInterface.JavaInterface::calculatePay (0 bytes)   virtual call"
+    // or the previous verdict if the line is not about it. Only the messages of C2 count, which are printed last;
+    // "inline (hot)" -> inlined (once for each class at a bimorphic call site), "virtual call" -> a real vtable or
+    // itable call. (C1 prints "inline" and "no static binding" for the same, and C1's code is soon replaced.)
+    static String inlined(String line, String callee, String verdict){
+        if(!line.contains(DispatchBenchmark.class.getPackageName() + ".") || !line.contains("::" + callee + " (")) return verdict;
+        if(line.contains("inline (hot)")) return "inlined";
+        if(line.contains("virtual call")) return "not inlined";
+        return verdict;
+    }
+}
@@ -73,6 +73,14 @@ public interface JavaInterface {
     //In an implementing class this method would need to be implemented.
     Double calculatePay();
 
+    // A default method added later, as described above -> existing implementations keep working unchanged.
+    // calculatePay returns a boxed Double, so each call may allocate a new object (unlike Integer, Double caches no values),
+    // which adds up over millions of employees. This returns a primitive double instead. The default has to unbox
+    // calculatePay, so it only helps when a class overrides it (and then implements calculatePay as a boxing of it).
+    default double calculatePayAsDouble(){
+        return calculatePay();
+    }
+
     // A Java 8 default method (use keyword default to declare it)
     //An implementing class doesn't need to provide its own implementation of this class, although it can provide its
     //own implementation if required.
@@ -94,4 +102,10 @@ public interface JavaInterface {
     static int getInterfaceNumber(){
         return constantNum;
     }
+
+    // A static method can also provide operations on many implementations at once -> here the pay of every employee,
+    // computed in parallel, grouped by class (see class Payroll).
+    static double[] calculatePayAll(JavaInterface[] employees){
+        return Payroll.calculatePay(employees);
+    }
 }
@@ -0,0 +1,209 @@
+package AbstractClassVsInterface;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+    Computes the pay of many JavaInterface employees at once, into a double[] (pay[i] is the pay of employees[i]).
+
+    Calling employee.calculatePay() in a loop over an array of mixed classes is slow for two reasons;
+        1) It returns a boxed Double, which is a new object per call -> use calculatePayAsDouble() instead.
+        2) The call site employee.calculatePayAsDouble() sees many classes. The JIT can only inline a call site which
+           has seen one class (MONOMORPHIC) or two (bimorphic) -> with more (MEGAMORPHIC) every call is a lookup in the
+           class's interface method table, and nothing is inlined.
+    So the employees are first GROUPED BY CLASS, and each group is computed by a KERNEL, a loop over the employees of one
+    class;
+        * A class can register its own kernel (see register), written for that class, eg. a loop which casts each
+          employee to the class and calls its method -> the call site in it only ever sees that class, so the JIT
+          inlines the method into the loop.
+        * For every other class a kernel is GENERATED -> the loop in PayrollKernel is defined again for each class, as
+          a HIDDEN CLASS (Lookup.defineHiddenClass) made from the same class file. Each copy is a separate class, with
+          its own profile and its own compiled code, so its call site only ever sees its one class, and the JIT
+          inlines the method just as it does for a registered kernel. A hidden class can be unloaded, so a kernel
+          lives only as long as its class of employee.
+          (If the class file of PayrollKernel cannot be read, every class shares one PayrollKernel, whose call site is
+          megamorphic. That is still faster than the mixed loop, since a group's calls all go to the same method, so
+          the processor predicts the indirect call.)
+    The groups are split into chunks of CHUNK employees, computed in parallel on a ForkJoinPool (each chunk writes to
+    its own elements of pay, so they need no locking).
+ */
+public final class Payroll {
+
+    // the number of employees below which a group is not split any further.
+    static final int CHUNK = 1 << 12;
+
+    // computes pay[index] for each index in indexes[from, to) -> see the comment at the top.
+    public interface BatchKernel {
+        void calculatePay(JavaInterface[] employees, int[] indexes, int from, int to, double[] pay);
+    }
+
+    private static final Map<Class<?>, BatchKernel> KERNELS = new ConcurrentHashMap<>();
+
+    // the class file of PayrollKernel, or null if it cannot be read.
+    private static final byte[] KERNEL_CLASS_FILE = kernelClassFile();
+    private static final BatchKernel SHARED_KERNEL = new PayrollKernel();
+
+    // a copy of PayrollKernel for each class -> see the comment at the top.
+    private static final ClassValue<BatchKernel> GENERATED_KERNELS = new ClassValue<BatchKernel>() {
+        @Override
+        protected BatchKernel computeValue(Class<?> type){
+            if(KERNEL_CLASS_FILE == null) return SHARED_KERNEL;
+            try {
+                Class<?> kernel = MethodHandles.lookup().defineHiddenClass(KERNEL_CLASS_FILE, true).lookupClass();
+                return (BatchKernel) kernel.getDeclaredConstructor().newInstance();
+            } catch(ReflectiveOperationException e){
+                throw new IllegalStateException("Cannot generate a kernel for " + type.getName(), e);
+            }
+        }
+    };
+
+    private Payroll(){
+    }
+
+    // kernel will be used for the employees whose class is exactly type (not a subclass, since a subclass may
+    // override the method which the kernel calls).
+    public static <T extends JavaInterface> void register(Class<T> type, BatchKernel kernel){
+        KERNELS.put(type, kernel);
+    }
+
+    public static double[] calculatePay(JavaInterface[] employees){
+        return calculatePay(employees, ForkJoinPool.commonPool());
+    }
+
+    public static double[] calculatePay(List<? extends JavaInterface> employees){
+        return calculatePay(employees.toArray(new JavaInterface[0]));
+    }
+
+    public static double[] calculatePay(JavaInterface[] employees, ForkJoinPool pool){
+        double[] pay = new double[employees.length];
+        pool.invoke(new Batch(employees, groupByClass(employees), pay));
+        return pay;
+    }
+
+    // the same grouping, computed in the calling thread.
+    public static double[] calculatePaySequentially(JavaInterface[] employees){
+        double[] pay = new double[employees.length];
+        for(Map.Entry<Class<?>, int[]> group : groupByClass(employees).entrySet()){
+            int[] indexes = group.getValue();
+            kernelFor(group.getKey()).calculatePay(employees, indexes, 0, indexes.length, pay);
+        }
+        return pay;
+    }
+
+    // a number for each class of employee, given out in the order in which the classes are first seen.
+    private static final AtomicInteger CLASS_COUNT = new AtomicInteger();
+    private static final ClassValue<Integer> CLASS_NUMBER = new ClassValue<Integer>() {
+        @Override
+        protected Integer computeValue(Class<?> type){
+            return CLASS_COUNT.getAndIncrement();
+        }
+    };
+
+    // the indexes of the employees of each class.
+    // Two passes -> the first numbers each employee's class and counts the classes, so that the second can fill
+    // exactly sized arrays (rather than growing a list per class). The classes are numbered with a ClassValue, ie. a
+    // value cached in the Class object itself, since a HashMap lookup (or a search of the classes seen so far) for
+    // every employee would take longer than calculating their pay.
+    private static Map<Class<?>, int[]> groupByClass(JavaInterface[] employees){
+        Class<?>[] classes = new Class<?>[CLASS_COUNT.get() + 1];
+        int[] counts = new int[classes.length];
+        int[] classOf = new int[employees.length];
+        for(int i = 0; i < employees.length; i++){
+            Class<?> type = employees[i].getClass();
+            int number = CLASS_NUMBER.get(type);
+            if(number >= classes.length){
+                classes = Arrays.copyOf(classes, Math.max(number + 1, classes.length * 2));
+                counts = Arrays.copyOf(counts, classes.length);
+            }
+            classes[number] = type;
+            classOf[i] = number;
+            counts[number]++;
+        }
+        int[][] indexes = new int[classes.length][];
+        for(int number = 0; number < classes.length; number++) if(counts[number] > 0) indexes[number] = new int[counts[number]];
+        int[] filled = new int[classes.length];
+        for(int i = 0; i < employees.length; i++){
+            int number = classOf[i];
+            indexes[number][filled[number]++] = i;
+        }
+        Map<Class<?>, int[]> groups = new LinkedHashMap<>();
+        for(int number = 0; number < classes.length; number++) if(counts[number] > 0) groups.put(classes[number], indexes[number]);
+        return groups;
+    }
+
+    private static BatchKernel kernelFor(Class<?> type){
+        BatchKernel kernel = KERNELS.get(type);
+        return kernel != null ? kernel : GENERATED_KERNELS.get(type);
+    }
+
+    private static byte[] kernelClassFile(){
+        try(InputStream in = Payroll.class.getResourceAsStream("PayrollKernel.class")){
+            return in == null ? null : in.readAllBytes();
+        } catch(IOException e){
+            return null;
+        }
+    }
+
+    // forks a Chunk for every CHUNK employees of each group.
+    private static final class Batch extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final JavaInterface[] employees;
+        private final Map<Class<?>, int[]> groups;
+        private final double[] pay;
+
+        Batch(JavaInterface[] employees, Map<Class<?>, int[]> groups, double[] pay){
+            this.employees = employees;
+            this.groups = groups;
+            this.pay = pay;
+        }
+
+        @Override
+        protected void compute(){
+            int chunks = 0;
+            for(int[] indexes : groups.values()) chunks += (indexes.length + CHUNK - 1) / CHUNK;
+            Chunk[] tasks = new Chunk[chunks];
+            int task = 0;
+            for(Map.Entry<Class<?>, int[]> group : groups.entrySet()){
+                BatchKernel kernel = kernelFor(group.getKey());
+                int[] indexes = group.getValue();
+                for(int from = 0; from < indexes.length; from += CHUNK){
+                    tasks[task++] = new Chunk(kernel, employees, indexes, from, Math.min(from + CHUNK, indexes.length), pay);
+                }
+            }
+            invokeAll(tasks);
+        }
+    }
+
+    private static final class Chunk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final BatchKernel kernel;
+        private final JavaInterface[] employees;
+        private final int[] indexes;
+        private final int from;
+        private final int to;
+        private final double[] pay;
+
+        Chunk(BatchKernel kernel, JavaInterface[] employees, int[] indexes, int from, int to, double[] pay){
+            this.kernel = kernel;
+            this.employees = employees;
+            this.indexes = indexes;
+            this.from = from;
+            this.to = to;
+            this.pay = pay;
+        }
+
+        @Override
+        protected void compute(){
+            kernel.calculatePay(employees, indexes, from, to, pay);
+        }
+    }
+}
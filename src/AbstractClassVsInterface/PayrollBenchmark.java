@@ -0,0 +1,175 @@
+package AbstractClassVsInterface;
+
+import BigO.Benchmark;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/*
+    Computes the pay of a payroll of n employees of four classes, shuffled together, in each of the ways below;
+        boxed, one at a time        -> sum += employee.calculatePay() in a loop, as before (a boxed Double per call,
+                                       from a megamorphic call site).
+        primitive, one at a time    -> pay[i] = employee.calculatePayAsDouble() in a loop.
+        batch, generated kernels    -> Payroll.calculatePaySequentially (grouped by class, with the kernels Payroll
+                                       generates for each class).
+        batch, registered kernels   -> the same with a kernel written and registered for each class.
+        batch, N cores              -> Payroll.calculatePay on a pool of N threads, with the registered kernels.
+    Each is reported as the time per employee and the bytes allocated per employee. The allocation is only counted for
+    the calling thread, so it is left out of the parallel rows (whose work happens in the pool's threads).
+
+    Usage: java AbstractClassVsInterface.PayrollBenchmark [number of employees]   (default 1,000,000)
+ */
+public class PayrollBenchmark {
+
+    static final class Salaried implements JavaInterface {
+        private final double annualSalary;
+
+        Salaried(double annualSalary){
+            this.annualSalary = annualSalary;
+        }
+
+        @Override
+        public Double calculatePay(){
+            return calculatePayAsDouble();
+        }
+
+        @Override
+        public double calculatePayAsDouble(){
+            return annualSalary / 12;
+        }
+    }
+
+    static final class Hourly implements JavaInterface {
+        private final double hours;
+        private final double rate;
+
+        Hourly(double hours, double rate){
+            this.hours = hours;
+            this.rate = rate;
+        }
+
+        @Override
+        public Double calculatePay(){
+            return calculatePayAsDouble();
+        }
+
+        // time and a half over 160 hours.
+        @Override
+        public double calculatePayAsDouble(){
+            return hours <= 160 ? hours * rate : 160 * rate + (hours - 160) * rate * 1.5;
+        }
+    }
+
+    static final class Commissioned implements JavaInterface {
+        private final double base;
+        private final double sales;
+
+        Commissioned(double base, double sales){
+            this.base = base;
+            this.sales = sales;
+        }
+
+        @Override
+        public Double calculatePay(){
+            return calculatePayAsDouble();
+        }
+
+        @Override
+        public double calculatePayAsDouble(){
+            return base + sales * 0.05;
+        }
+    }
+
+    static final class Contractor implements JavaInterface {
+        private final int days;
+        private final double dayRate;
+
+        Contractor(int days, double dayRate){
+            this.days = days;
+            this.dayRate = dayRate;
+        }
+
+        @Override
+        public Double calculatePay(){
+            return calculatePayAsDouble();
+        }
+
+        @Override
+        public double calculatePayAsDouble(){
+            return days * dayRate;
+        }
+    }
+
+    public static void main(String[] args){
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        JavaInterface[] employees = payroll(count, new Random(42));
+        double[] expected = Payroll.calculatePaySequentially(employees);
+
+        System.out.printf("%,d employees of 4 classes%n%n", count);
+        System.out.println(String.format("%-32s%-16s%-16s", "Method", "per employee", "bytes").trim());
+        row("boxed, one at a time", Benchmark.measure(i -> {
+            double sum = 0;
+            for(JavaInterface employee : employees) sum += employee.calculatePay();
+            return (long) sum;
+        }, 1), count, true);
+        row("primitive, one at a time", Benchmark.measure(i -> {
+            double[] pay = new double[employees.length];
+            for(int e = 0; e < employees.length; e++) pay[e] = employees[e].calculatePayAsDouble();
+            return (long) pay[i % pay.length];
+        }, 1), count, true);
+        row("batch, generated kernels", Benchmark.measure(i -> (long) Payroll.calculatePaySequentially(employees)[0], 1), count, true);
+
+        registerKernels();
+        double[] batch = Payroll.calculatePay(employees);
+        for(int i = 0; i < count; i++){
+            if(batch[i] != expected[i]) throw new IllegalStateException("Kernel gives a different pay for employee " + i);
+        }
+        row("batch, registered kernels", Benchmark.measure(i -> (long) Payroll.calculatePaySequentially(employees)[0], 1),
+                count, true);
+        int cores = Runtime.getRuntime().availableProcessors();
+        for(int parallelism = 1; ; parallelism = Math.min(parallelism * 2, cores)){
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                row("batch, " + parallelism + (parallelism == 1 ? " core" : " cores"),
+                        Benchmark.measure(i -> (long) Payroll.calculatePay(employees, pool)[0], 1), count, false);
+            } finally {
+                pool.shutdown();
+            }
+            if(parallelism == cores) break;
+        }
+    }
+
+    // a kernel per class -> the cast tells the JIT the exact (final) class, so the call is inlined into the loop.
+    static void registerKernels(){
+        Payroll.register(Salaried.class, (employees, indexes, from, to, pay) -> {
+            for(int i = from; i < to; i++) pay[indexes[i]] = ((Salaried) employees[indexes[i]]).calculatePayAsDouble();
+        });
+        Payroll.register(Hourly.class, (employees, indexes, from, to, pay) -> {
+            for(int i = from; i < to; i++) pay[indexes[i]] = ((Hourly) employees[indexes[i]]).calculatePayAsDouble();
+        });
+        Payroll.register(Commissioned.class, (employees, indexes, from, to, pay) -> {
+            for(int i = from; i < to; i++) pay[indexes[i]] = ((Commissioned) employees[indexes[i]]).calculatePayAsDouble();
+        });
+        Payroll.register(Contractor.class, (employees, indexes, from, to, pay) -> {
+            for(int i = from; i < to; i++) pay[indexes[i]] = ((Contractor) employees[indexes[i]]).calculatePayAsDouble();
+        });
+    }
+
+    static JavaInterface[] payroll(int count, Random random){
+        JavaInterface[] employees = new JavaInterface[count];
+        for(int i = 0; i < count; i++){
+            switch(random.nextInt(4)){
+                case 0: employees[i] = new Salaried(20_000 + random.nextInt(80_000)); break;
+                case 1: employees[i] = new Hourly(100 + random.nextInt(100), 10 + random.nextInt(30)); break;
+                case 2: employees[i] = new Commissioned(1_000 + random.nextInt(2_000), random.nextInt(100_000)); break;
+                default: employees[i] = new Contractor(1 + random.nextInt(22), 200 + random.nextInt(600));
+            }
+        }
+        return employees;
+    }
+
+    static void row(String name, Benchmark.Result result, int count, boolean showBytes){
+        System.out.println(String.format("%-32s%-16s%-16s", name, Benchmark.formatNanos(result.nanosPerOp() / count),
+                showBytes ? Benchmark.formatBytes(result.bytesPerOp() / count) : "-").trim());
+    }
+}
@@ -0,0 +1,17 @@
+package AbstractClassVsInterface;
+
+/*
+    The kernel which Payroll uses for a class of employee that has not registered one of its own. Payroll never calls
+    this class directly -> it reads its class file and defines a new copy of it for each class of employee (see the
+    comment in Payroll), so that the call site below only ever sees one class.
+ */
+final class PayrollKernel implements Payroll.BatchKernel {
+
+    @Override
+    public void calculatePay(JavaInterface[] employees, int[] indexes, int from, int to, double[] pay){
+        for(int i = from; i < to; i++){
+            int index = indexes[i];
+            pay[index] = employees[index].calculatePayAsDouble();
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package BigO;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/*
+    A small measurement harness used by the benchmarks in this project (there is no build file here to pull in JMH).
+    It follows the same rules JMH does, just more crudely;
+        * WARM UP first, so that the JIT has compiled the code under test before anything is timed.
+        * Time BATCHES of operations rather than single calls -> System.nanoTime() itself costs ~20ns, which would swamp
+          an O(1) operation.
+        * Consume every result (see consume()) so that the JIT cannot remove the work as dead code.
+        * Keep setup out of the timed region -> a Fixture prepares fresh state for each batch (eg. a copy of a list
+          to remove from), and only the operations themselves are timed.
+    Allocation is measured with the HotSpot per-thread allocation counter, which is what JMH's "-prof gc" reports as
+    gc.alloc.rate.norm (bytes allocated per operation).
+
+    Warmup and measurement time can be changed with -Dbigo.warmupMillis=... and -Dbigo.measureMillis=...
+ */
+public final class Benchmark {
+
+    static final long WARMUP_NANOS = Long.getLong("bigo.warmupMillis", 200) * 1_000_000L;
+    static final long MEASURE_NANOS = Long.getLong("bigo.measureMillis", 500) * 1_000_000L;
+
+    // results are xor-ed into this field so that the JIT cannot prove the measured work is unused.
+    private static volatile long sink;
+
+    private Benchmark(){
+    }
+
+    // A single operation under test. i is the index of the call within its batch, and the return value is consumed.
+    public interface Operation {
+        long run(int i);
+    }
+
+    // Creates fresh state for a batch of operations (untimed), and returns the operation to time against that state.
+    public interface Fixture {
+        Operation prepare();
+    }
+
+    public static final class Result {
+        private final double nanosPerOp;
+        private final double bytesPerOp;
+        private final long operations;
+
+        Result(double nanosPerOp, double bytesPerOp, long operations){
+            this.nanosPerOp = nanosPerOp;
+            this.bytesPerOp = bytesPerOp;
+            this.operations = operations;
+        }
+
+        public double nanosPerOp(){
+            return nanosPerOp;
+        }
+
+        public double opsPerSecond(){
+            return 1_000_000_000d / nanosPerOp;
+        }
+
+        // NaN if the JVM cannot report per-thread allocation.
+        public double bytesPerOp(){
+            return bytesPerOp;
+        }
+
+        public long operations(){
+            return operations;
+        }
+
+        // eg. "12.3ns 0B" -> the format used in the tables printed by the benchmarks.
+        @Override
+        public String toString(){
+            return formatNanos(nanosPerOp) + " " + formatBytes(bytesPerOp);
+        }
+    }
+
+    // measures an operation which does not need fresh state between batches.
+    public static Result measure(Operation operation){
+        return measure(operation, 1024);
+    }
+
+    public static Result measure(Operation operation, int batchSize){
+        return measure(() -> operation, batchSize);
+    }
+
+    public static Result measure(Fixture fixture, int batchSize){
+        if(batchSize < 1) throw new IllegalArgumentException("batchSize must be at least 1: " + batchSize);
+        run(fixture, batchSize, WARMUP_NANOS);
+        return run(fixture, batchSize, MEASURE_NANOS);
+    }
+
+    // measures a pair of operations which undo each other, eg. add and remove, by alternating a timed batch of each.
+    // This keeps the structure at its original size without an untimed copy between batches (which would dominate
+    // the run time for large structures). Returns the results for forward and undo, in that order.
+    public static Result[] measureAlternating(Operation forward, Operation undo, int batchSize){
+        if(batchSize < 1) throw new IllegalArgumentException("batchSize must be at least 1: " + batchSize);
+        runAlternating(forward, undo, batchSize, WARMUP_NANOS);
+        return runAlternating(forward, undo, batchSize, MEASURE_NANOS);
+    }
+
+    private static Result[] runAlternating(Operation forward, Operation undo, int batchSize, long budgetNanos){
+        long[] timed = new long[2];
+        long[] allocated = new long[2];
+        long operations = 0;
+        long accumulator = 0;
+        Operation[] pair = {forward, undo};
+        long deadline = System.nanoTime() + budgetNanos;
+        do {
+            for(int p = 0; p < 2; p++){
+                Operation operation = pair[p];
+                long allocatedBefore = allocatedBytes();
+                long start = System.nanoTime();
+                for(int i = 0; i < batchSize; i++){
+                    accumulator ^= operation.run(i);
+                }
+                long end = System.nanoTime();
+                allocated[p] += allocatedBytes() - allocatedBefore;
+                timed[p] += end - start;
+            }
+            operations += batchSize;
+        } while(System.nanoTime() < deadline);
+        consume(accumulator);
+        Result[] results = new Result[2];
+        for(int p = 0; p < 2; p++){
+            double bytesPerOp = ALLOCATION == null ? Double.NaN : (double) allocated[p] / operations;
+            results[p] = new Result((double) timed[p] / operations, bytesPerOp, operations);
+        }
+        return results;
+    }
+
+    private static Result run(Fixture fixture, int batchSize, long budgetNanos){
+        long timed = 0;
+        long allocated = 0;
+        long operations = 0;
+        long accumulator = 0;
+        long deadline = System.nanoTime() + budgetNanos;
+        do {
+            Operation operation = fixture.prepare();
+            long allocatedBefore = allocatedBytes();
+            long start = System.nanoTime();
+            for(int i = 0; i < batchSize; i++){
+                accumulator ^= operation.run(i);
+            }
+            long end = System.nanoTime();
+            allocated += allocatedBytes() - allocatedBefore;
+            timed += end - start;
+            operations += batchSize;
+        } while(System.nanoTime() < deadline);
+        consume(accumulator);
+        double bytesPerOp = ALLOCATION == null ? Double.NaN : (double) allocated / operations;
+        return new Result((double) timed / operations, bytesPerOp, operations);
+    }
+
+    public static void consume(long value){
+        sink ^= value;
+    }
+
+    public static void consume(Object value){
+        sink ^= System.identityHashCode(value);
+    }
+
+    // bytes allocated so far by the current thread, or 0 if the JVM cannot tell us.
+    public static long allocatedBytes(){
+        return ALLOCATION == null ? 0 : ALLOCATION.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    // heap in use after a best-effort full collection -> used to measure the retained size of a data structure.
+    public static long usedHeapAfterGc(){
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for(int i = 0; i < 4; i++){
+            System.gc();
+            try {
+                Thread.sleep(20);
+            } catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+            }
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+    public static String formatNanos(double nanos){
+        if(nanos >= 1_000_000) return String.format("%.1fms", nanos / 1_000_000);
+        if(nanos >= 1_000) return String.format("%.1fus", nanos / 1_000);
+        return String.format("%.1fns", nanos);
+    }
+
+    public static String formatBytes(double bytes){
+        if(Double.isNaN(bytes)) return "?B";
+        return String.format("%.0fB", bytes);
+    }
+
+    private static final com.sun.management.ThreadMXBean ALLOCATION = allocationBean();
+
+    private static com.sun.management.ThreadMXBean allocationBean(){
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if(!(bean instanceof com.sun.management.ThreadMXBean)) return null;
+        com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) bean;
+        if(!allocation.isThreadAllocatedMemorySupported()) return null;
+        allocation.setThreadAllocatedMemoryEnabled(true);
+        return allocation;
+    }
+}
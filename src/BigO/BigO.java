@@ -1,5 +1,10 @@
 package BigO;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
 /*  Big O measures the efficiency of an algorithm based on the time it takes for the algorithm to run as a function of
     the input size, ie how well an algorithm scales according to the size of the dataset.
         http://bigocheatsheet.com/
@@ -34,6 +39,9 @@ package BigO;
 
     O(2^n) - exponential growth - the algorithm takes twice as long for every new element added.
 
+    The sorts above (and radix sort, and a parallel mergesort) are implemented in package Sorting, and
+    SortBenchmark there times them on random, sorted, reversed and nearly sorted input.
+
     ### ARRAYLIST VS LINKED LIST FOR GET ####
 
     ARRAYLIST = O(1)
@@ -77,18 +85,368 @@ LinkedList	        O(n)	    O(1)	    O(1)	    O(n)
 HashSet	            O(1)	    O(1)	    O(1)	    O(1)
 LinkedHashSet	    O(1)	    O(1)	    O(1)	    O(1)
 TreeSet	            O(log n)	O(log n)	O(log n)	O(log n)
+IntArrayList	    O(1)	    O(1)	    O(n)	    O(n)
+IntHashSet	        O(1)	    O(1)	    O(1)	    O(1)
+TieredList	        O(1)	    O(1)	    O(sqrt n)	O(n)
 
 MAPS
 Structure	        get	        put	        remove	    containsKey
 HashMap	            O(1)	    O(1)	    O(1)	    O(1)
 LinkedHashMap	    O(1)	    O(1)	    O(1)	    O(1)
 TreeMap	            O(log n)	O(log n)	O(log n)	O(log n)
+IntIntHashMap	    O(1)	    O(1)	    O(1)	    O(1)
+
+The Int* rows are the primitive collections in package DataStructures. The Big O is the same as ArrayList/HashSet/
+HashMap, but the table hides the constant factor -> the java.util collections box every int into an Integer, so they
+use 4-15 times the memory per element, allocate on every add, and chase a pointer on every get. Run
+PrimitiveCollectionBenchmark in that package for the memory per element and ops/sec of each.
+TieredList (also in DataStructures) is a tiered vector -> chunks of about sqrt(n) elements, so that add/remove in
+the middle only shifts one chunk and passes one element along each of the others. That makes it O(sqrt n) at any
+position, where ArrayList and LinkedList are both O(n) in the middle, while get stays O(1). It is included in the
+lists measured by CollectionBenchmark.
+
+To see what these tables cost in practice (ns per operation and bytes allocated per operation on your own JVM,
+for n from 10 to 10^7, and at the head, middle and tail of the lists) run CollectionBenchmark in this package.
+
+ESTIMATING THE BIG O OF YOUR OWN CODE
+    BigO.estimate(workload) runs a workload at doubling input sizes and fits the times to one of the classes above;
+        * Doubling ratio -> if doubling n doubles the time it is O(n), if it quadruples the time it is O(n^2), and if
+          the time hardly changes it is O(1) or O(log n).
+        * Log-log regression -> the same idea over all the sizes at once: plotting log(time) against log(n) gives a
+          line whose slope is the exponent, ie. 0 for O(1), 1 for O(n), 2 for O(n^2).
+    The result includes a confidence, since O(1) vs O(log n) and O(n) vs O(n log n) are hard to tell apart on a
+    noisy machine. It takes about a third of a second, so it can be used in a regression test to catch a method going from
+    O(n) to O(n^2), eg. assertFalse(BigO.estimate(workload).isWorseThan(Complexity.LINEAR)). See main for examples.
 */
 
 public class BigO {
 
+    // The growth classes from the comment above, in order from best to worst.
+    public enum Complexity {
+        CONSTANT("O(1)"),
+        LOGARITHMIC("O(log n)"),
+        LINEAR("O(n)"),
+        LINEARITHMIC("O(n log n)"),
+        QUADRATIC("O(n^2)"),
+        EXPONENTIAL("O(2^n)");
+
+        private final String notation;
+
+        Complexity(String notation){
+            this.notation = notation;
+        }
+
+        // natural log of the growth function f(n) -> log n is taken as log2(n + 1) so that it is defined at n = 1.
+        double logGrowth(double n){
+            switch(this){
+                case CONSTANT: return 0;
+                case LOGARITHMIC: return Math.log(log2(n + 1));
+                case LINEAR: return Math.log(n);
+                case LINEARITHMIC: return Math.log(n) + Math.log(log2(n + 1));
+                case QUADRATIC: return 2 * Math.log(n);
+                default: return n * Math.log(2);
+            }
+        }
+
+        @Override
+        public String toString(){
+            return notation;
+        }
+    }
+
+    // A workload to estimate -> input(n) builds an input of size n (untimed), and run(input) is the timed operation.
+    // run must leave the input reusable since it is called many times on the same input (eg. sort a copy of it),
+    // and should return something derived from its work so that the JIT cannot remove it.
+    public interface Workload<T> {
+        T input(int n);
+
+        long run(T input);
+    }
+
+    public static final class Estimate {
+        private final Complexity complexity;
+        private final double confidence;
+        private final double slope;
+        private final int[] sizes;
+        private final double[] nanos;
+
+        Estimate(Complexity complexity, double confidence, double slope, int[] sizes, double[] nanos){
+            this.complexity = complexity;
+            this.confidence = confidence;
+            this.slope = slope;
+            this.sizes = sizes;
+            this.nanos = nanos;
+        }
+
+        public Complexity complexity(){
+            return complexity;
+        }
+
+        // between 0 (the slope is on the boundary with the neighbouring class) and 1 (it is many standard errors
+        // from that boundary, so noise could not have moved it into the neighbouring class). Also 0 when too few sizes
+        // were measured to tell (see MIN_FIT_POINTS).
+        public double confidence(){
+            return confidence;
+        }
+
+        // the measured slope of log(time) against log(n) over the largest sizes, eg. ~1 for O(n), ~2 for O(n^2).
+        public double slope(){
+            return slope;
+        }
+
+        public int[] sizes(){
+            return sizes.clone();
+        }
+
+        // median nanoseconds per run at each of sizes().
+        public double[] nanos(){
+            return nanos.clone();
+        }
+
+        // eg. for a regression gate -> fail the build if a method that should be linear is measured as quadratic.
+        public boolean isWorseThan(Complexity expected){
+            return complexity.compareTo(expected) > 0;
+        }
+
+        @Override
+        public String toString(){
+            StringBuilder result = new StringBuilder(String.format("%s (confidence %.2f, slope %.2f)", complexity, confidence, slope));
+            for(int i = 0; i < sizes.length; i++){
+                result.append(String.format("%n    n = %-10d %s", sizes[i], Benchmark.formatNanos(nanos[i])));
+                // the doubling ratio -> how much longer the run took when the input doubled.
+                if(i > 0) result.append(String.format("  x%.2f", nanos[i] / nanos[i - 1]));
+            }
+            return result.toString();
+        }
+    }
+
+    private static final int SAMPLES = 5;
+    // the fewest points the slope is fitted over -> with fewer, the residuals say nothing about the noise (a line
+    // through 3 points by the median of their slopes always passes through 2 of them), so the confidence is 0.
+    static final int MIN_FIT_POINTS = 5;
+    // the least sigma of log(time) assumed for a fit -> timings on a real machine vary by a few percent however
+    // smooth a handful of points happen to look.
+    static final double SIGMA_FLOOR = 0.02;
+
+    // estimates with the defaults -> sizes 1 to 2^20, in about a third of a second.
+    public static <T> Estimate estimate(Workload<T> workload){
+        return estimate(workload, 1, 1 << 20, 300);
+    }
+
+    // runs the workload at doubling input sizes from minSize up to maxSize, and stops early if the next size would
+    // not fit in the time budget (so an O(2^n) workload only reaches a small n).
+    public static <T> Estimate estimate(Workload<T> workload, int minSize, int maxSize, long budgetMillis){
+        if(minSize < 1 || maxSize < minSize) throw new IllegalArgumentException("sizes must satisfy 1 <= minSize <= maxSize");
+        long budget = budgetMillis * 1_000_000L;
+        long start = System.nanoTime();
+        long sampleNanos = Math.max(20_000, budget / 400);
+
+        // warm up at the smallest size, so that the first points are not measured in the interpreter.
+        T warmupInput = workload.input(minSize);
+        long accumulator = 0;
+        while(System.nanoTime() - start < budget / 10) accumulator ^= workload.run(warmupInput);
+        Benchmark.consume(accumulator);
+
+        int[] sizes = new int[32];
+        double[] nanos = new double[32];
+        int points = 0;
+        for(long n = minSize; n <= maxSize; n *= 2){
+            nanos[points] = measure(workload, workload.input((int) n), sampleNanos);
+            sizes[points++] = (int) n;
+            // predict the next point pessimistically from the last doubling ratio (squared, so that the ratio is
+            // allowed to grow), and stop if it would take more than the time left.
+            double ratio = points > 1 ? Math.max(2, nanos[points - 1] / nanos[points - 2]) : 4;
+            double next = nanos[points - 1] * ratio * ratio;
+            long remaining = budget - (System.nanoTime() - start);
+            if(next * SAMPLES > remaining || Math.max(next, sampleNanos) * SAMPLES > remaining) break;
+        }
+        return fit(Arrays.copyOf(sizes, points), Arrays.copyOf(nanos, points));
+    }
+
+    // median time of one run, measured as SAMPLES batches of enough runs to take at least sampleNanos each.
+    private static <T> double measure(Workload<T> workload, T input, long sampleNanos){
+        long accumulator = 0;
+        int runs = 1;
+        while(true){
+            long start = System.nanoTime();
+            for(int i = 0; i < runs; i++) accumulator ^= workload.run(input);
+            if(System.nanoTime() - start >= sampleNanos || runs >= 1 << 30) break;
+            runs *= 2;
+        }
+        double[] samples = new double[SAMPLES];
+        for(int s = 0; s < SAMPLES; s++){
+            long start = System.nanoTime();
+            for(int i = 0; i < runs; i++) accumulator ^= workload.run(input);
+            samples[s] = (double) (System.nanoTime() - start) / runs;
+        }
+        Benchmark.consume(accumulator);
+        Arrays.sort(samples);
+        return samples[SAMPLES / 2];
+    }
+
+    // Fits the measurements with the log-log regression described above -> if t(n) = c * f(n) then
+    // log t = log c + log f(n), so the slope of log t against log n is the exponent of the growth, eg. 1 for O(n)
+    // (doubling n doubles t), and 2 for O(n^2) (doubling n quadruples t). The slope is measured over the larger half of
+    // the sizes, where fixed per-call overheads no longer hide the growth, and compared with the slope each class
+    // would have over the same sizes. The nearest class wins, and the confidence is how safely the measured slope is
+    // inside the boundaries with the classes either side of it (half way between their slopes), counted in standard
+    // errors of the slope -> neighbouring classes are close (eg. O(n) and O(n log n) differ by about 0.07 over these sizes), so
+    // what matters is whether the noise in the points could have moved the slope across that boundary.
+    static Estimate fit(int[] sizes, double[] nanos){
+        int points = sizes.length;
+        int from = Math.max(0, Math.min(points / 2, points - MIN_FIT_POINTS));
+        int used = points - from;
+        double[] logN = new double[used];
+        double[] logT = new double[used];
+        for(int i = 0; i < used; i++){
+            logN[i] = Math.log(sizes[from + i]);
+            logT[i] = Math.log(Math.max(nanos[from + i], 1e-3));
+        }
+        double slope = slope(logN, logT);
+
+        // the slope of each class over the same sizes, in order from best to worst, so the slopes increase.
+        Complexity[] complexities = Complexity.values();
+        double[] classSlopes = new double[complexities.length];
+        int best = 0;
+        for(int c = 0; c < complexities.length; c++){
+            double[] logF = new double[used];
+            for(int i = 0; i < used; i++) logF[i] = complexities[c].logGrowth(sizes[from + i]);
+            classSlopes[c] = slope(logN, logF);
+            if(Math.abs(slope - classSlopes[c]) < Math.abs(slope - classSlopes[best])) best = c;
+        }
+        // the boundaries of the best class, half way to the classes either side -> below O(1) there is no class, but
+        // a time which falls as n grows is noise, not better than O(1), so its range is taken as symmetric about 0.
+        double upper = best + 1 < complexities.length ? (classSlopes[best] + classSlopes[best + 1]) / 2 : Double.MAX_VALUE;
+        double lower = best > 0 ? (classSlopes[best - 1] + classSlopes[best]) / 2 : 2 * classSlopes[best] - upper;
+        double confidence = 0;
+        double error = used >= MIN_FIT_POINTS ? standardError(logN, logT) : 0;
+        if(error > 0){
+            double margin = Math.max(0, Math.min(slope - lower, upper - slope));
+            // 1 - e^(-z^2 / 2), for a margin of z standard errors -> 0.39 at one, 0.86 at two and 0.99 at three.
+            confidence = 1 - Math.exp(-(margin / error) * (margin / error) / 2);
+        }
+        return new Estimate(complexities[best], confidence, slope, sizes, nanos);
+    }
+
+    // the median of the slopes between every pair of points (the Theil-Sen estimator) -> unlike a least squares fit,
+    // one point disturbed by a GC pause or a cache effect does not drag the slope with it.
+    private static double slope(double[] x, double[] y){
+        int n = x.length;
+        if(n < 2) return 0;
+        double[] slopes = new double[n * (n - 1) / 2];
+        int count = 0;
+        for(int i = 0; i < n; i++){
+            for(int j = i + 1; j < n; j++){
+                slopes[count++] = (y[j] - y[i]) / (x[j] - x[i]);
+            }
+        }
+        return median(slopes);
+    }
+
+    // the standard error of the slope of the line through (x, y) -> sigma / sqrt(sum of (x - mean x)^2), where sigma is
+    // estimated from the residuals of the least squares line with n - 2 degrees of freedom (2 are used up by the line
+    // itself), and is at least SIGMA_FLOOR. 0 if the points lie exactly on a line, since then they are not timings.
+    private static double standardError(double[] x, double[] y){
+        int n = x.length;
+        double meanX = 0;
+        double meanY = 0;
+        for(int i = 0; i < n; i++){
+            meanX += x[i] / n;
+            meanY += y[i] / n;
+        }
+        double spread = 0;
+        double covariance = 0;
+        for(int i = 0; i < n; i++){
+            spread += (x[i] - meanX) * (x[i] - meanX);
+            covariance += (x[i] - meanX) * (y[i] - meanY);
+        }
+        double slope = covariance / spread;
+        double squares = 0;
+        for(int i = 0; i < n; i++){
+            double residual = y[i] - meanY - slope * (x[i] - meanX);
+            squares += residual * residual;
+        }
+        if(squares == 0) return 0;
+        double sigma = Math.max(SIGMA_FLOOR, Math.sqrt(squares / (n - 2)));
+        return sigma / Math.sqrt(spread);
+    }
 
+    private static double median(double[] values){
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int n = sorted.length;
+        return n % 2 == 1 ? sorted[n / 2] : (sorted[n / 2 - 1] + sorted[n / 2]) / 2;
+    }
 
+    // estimates some workloads whose complexity is known from the notes above.
+    public static void main(String[] args){
+        Random random = new Random(42);
+        Workload<Set<Integer>> hashSetContains = new Workload<Set<Integer>>() {
+            public Set<Integer> input(int n){
+                Set<Integer> set = new HashSet<>();
+                for(int i = 0; i < n; i++) set.add(random.nextInt());
+                return set;
+            }
+            public long run(Set<Integer> set){
+                return set.contains(12345) ? 1 : 0;
+            }
+        };
+        Workload<int[]> linearSearch = new Workload<int[]>() {
+            public int[] input(int n){
+                return random.ints(n).toArray();
+            }
+            public long run(int[] array){
+                long sum = 0;
+                for(int value : array) sum += value;
+                return sum;
+            }
+        };
+        Workload<int[]> mergesort = new Workload<int[]>() {
+            public int[] input(int n){
+                return random.ints(n).toArray();
+            }
+            public long run(int[] array){
+                Integer[] copy = new Integer[array.length]; // sorting objects uses a mergesort (TimSort).
+                for(int i = 0; i < array.length; i++) copy[i] = array[i];
+                Arrays.sort(copy);
+                return copy[0];
+            }
+        };
+        Workload<int[]> allPairs = new Workload<int[]>() {
+            public int[] input(int n){
+                return random.ints(n).toArray();
+            }
+            public long run(int[] array){
+                long count = 0;
+                for(int i = 0; i < array.length; i++){
+                    for(int j = i + 1; j < array.length; j++){
+                        if(array[i] < array[j]) count++;
+                    }
+                }
+                return count;
+            }
+        };
+        Workload<Integer> subsets = new Workload<Integer>() {
+            public Integer input(int n){
+                return n;
+            }
+            public long run(Integer n){
+                return countSubsets(n);
+            }
+        };
+        System.out.println("HashSet.contains   " + estimate(hashSetContains));
+        System.out.println("sum of an array    " + estimate(linearSearch));
+        System.out.println("mergesort          " + estimate(mergesort));
+        System.out.println("all pairs          " + estimate(allPairs));
+        System.out.println("all subsets        " + estimate(subsets));
+    }
 
+    // visits every subset of n elements -> O(2^n).
+    private static long countSubsets(int n){
+        return n == 0 ? 1 : countSubsets(n - 1) + countSubsets(n - 1);
+    }
 
+    private static double log2(double n){
+        return Math.log(n) / Math.log(2);
+    }
 }
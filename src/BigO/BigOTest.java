@@ -0,0 +1,61 @@
+package BigO;
+
+import java.util.Random;
+
+/*
+    Checks that BigO.fit only reports a high confidence when the measurements support it. There is no test framework in
+    this project, so it is run like the benchmarks -> java BigO.BigOTest, which throws AssertionError on a failure.
+ */
+public class BigOTest {
+
+    public static void main(String[] args){
+        tooFewPointsHaveNoConfidence();
+        randomTimesHaveLowConfidence();
+        cleanTimesHaveHighConfidence();
+        System.out.println("BigOTest passed");
+    }
+
+    // the times from a bug report, which fitted 3 of them exactly -> now all 5 are fitted, and the noise shows. With 4
+    // sizes there are too few to fit, so the confidence is 0 whatever the times.
+    static void tooFewPointsHaveNoConfidence(){
+        BigO.Estimate estimate = BigO.fit(new int[]{1, 2, 4, 8, 16}, new double[]{10, 500, 20, 3000, 40});
+        check(estimate.confidence() < 0.5, "5 noisy points -> " + estimate);
+        estimate = BigO.fit(new int[]{1, 2, 4, 8}, new double[]{10, 20, 40, 80});
+        check(estimate.confidence() == 0, "4 points -> " + estimate);
+    }
+
+    // times which have nothing to do with n -> most fits must not be confident, whichever class they land on.
+    static void randomTimesHaveLowConfidence(){
+        Random random = new Random(42);
+        int trials = 1000;
+        int confident = 0;
+        for(int trial = 0; trial < trials; trial++){
+            int points = 5 + random.nextInt(16);
+            int[] sizes = new int[points];
+            double[] nanos = new double[points];
+            for(int i = 0; i < points; i++){
+                sizes[i] = 1 << i;
+                nanos[i] = Math.exp(random.nextDouble() * 10);
+            }
+            if(BigO.fit(sizes, nanos).confidence() >= 0.9) confident++;
+        }
+        check(confident < trials / 20, confident + " of " + trials + " random fits had a confidence of at least 0.9");
+    }
+
+    // O(n) with 2% noise over 2^0 to 2^15 -> linear, with a high confidence.
+    static void cleanTimesHaveHighConfidence(){
+        Random random = new Random(7);
+        int[] sizes = new int[16];
+        double[] nanos = new double[16];
+        for(int i = 0; i < sizes.length; i++){
+            sizes[i] = 1 << i;
+            nanos[i] = 3.0 * sizes[i] * (1 + 0.02 * random.nextGaussian());
+        }
+        BigO.Estimate estimate = BigO.fit(sizes, nanos);
+        check(estimate.complexity() == BigO.Complexity.LINEAR && estimate.confidence() > 0.9, "clean O(n) -> " + estimate);
+    }
+
+    private static void check(boolean condition, String message){
+        if(!condition) throw new AssertionError(message);
+    }
+}
@@ -0,0 +1,211 @@
+package BigO;
+
+import DataStructures.TieredList;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/*
+    Measures the "LISTS AND SETS" and "MAPS" tables from the comment in class BigO on this JVM, and prints them in the
+    same layout, with each cell showing the time per operation and the bytes allocated per operation, eg. "8.1ns 0B".
+
+    Lists are measured at the HEAD, MIDDLE and TAIL of the list, since that is where ArrayList and LinkedList differ;
+        get         -> list.get(position)
+        add         -> list.add(position, element)
+        remove      -> list.remove(position) (removes the elements added by the add column, so the size stays at n)
+        contains    -> list.contains(the element at position) -> a linear search from the head.
+    Sets and maps are probed with random keys that are present; add/put insert new keys which remove then takes out again.
+    A set has no get(index), so that column is "-".
+    TieredList (package DataStructures) is included with the lists, to compare its middle insert/remove.
+
+    The ARRAYLIST CAPACITY table compares filling an ArrayList with n elements when it has the default capacity
+    (and so resizes as it grows) against one INITIALIZED to the expected size.
+
+    Usage: java BigO.CollectionBenchmark [sizes...]   eg. java -Xmx4g BigO.CollectionBenchmark 10 1000 100000
+    The default sizes are 10 to 10^7 -> the larger sizes need a few GB of heap (-Xmx4g) and several minutes to run.
+ */
+public class CollectionBenchmark {
+
+    private static final int[] DEFAULT_SIZES = {10, 100, 1_000, 10_000, 100_000, 1_000_000, 10_000_000};
+    private static final int PROBES = 1024; // number of random keys used by the set and map lookups (a power of 2).
+
+    enum Position {
+        HEAD, MIDDLE, TAIL;
+
+        // index of an existing element in a list of the given size.
+        int existing(int size){
+            switch(this){
+                case HEAD: return 0;
+                case MIDDLE: return size / 2;
+                default: return size - 1;
+            }
+        }
+
+        // index at which to insert into a list of the given size.
+        int insert(int size){
+            return this == TAIL ? size : existing(size);
+        }
+    }
+
+    // the list implementations to compare -> each is created as a copy of the given elements.
+    static final Map<String, Function<Collection<Integer>, List<Integer>>> LISTS = new LinkedHashMap<>();
+    static final Map<String, Supplier<Set<Integer>>> SETS = new LinkedHashMap<>();
+    static final Map<String, Supplier<Map<Integer, Integer>>> MAPS = new LinkedHashMap<>();
+
+    static {
+        LISTS.put("ArrayList", ArrayList::new);
+        LISTS.put("LinkedList", LinkedList::new);
+        LISTS.put("TieredList", TieredList::new);
+        SETS.put("HashSet", HashSet::new);
+        SETS.put("LinkedHashSet", LinkedHashSet::new);
+        SETS.put("TreeSet", TreeSet::new);
+        MAPS.put("HashMap", HashMap::new);
+        MAPS.put("LinkedHashMap", LinkedHashMap::new);
+        MAPS.put("TreeMap", TreeMap::new);
+    }
+
+    public static void main(String[] args){
+        int[] sizes = DEFAULT_SIZES;
+        if(args.length > 0){
+            sizes = new int[args.length];
+            for(int i = 0; i < args.length; i++) sizes[i] = Integer.parseInt(args[i]);
+        }
+        for(int size : sizes){
+            System.out.printf("%n======== n = %,d ========%n", size);
+            printListsAndSets(size);
+            printMaps(size);
+            printArrayListCapacity(size);
+        }
+    }
+
+    static void printListsAndSets(int size){
+        Integer[] elements = boxed(size + batchSize(size));
+        header("LISTS AND SETS", "get", "add", "remove", "contains");
+        for(Map.Entry<String, Function<Collection<Integer>, List<Integer>>> list : LISTS.entrySet()){
+            for(Position position : Position.values()){
+                List<Integer> contents = new ArrayList<>(size);
+                for(int i = 0; i < size; i++) contents.add(elements[i]);
+                Benchmark.Result[] cells = measureList(list.getValue().apply(contents), size, position, elements);
+                row(list.getKey() + " (" + position.name().toLowerCase() + ")", cells);
+            }
+        }
+        for(Map.Entry<String, Supplier<Set<Integer>>> set : SETS.entrySet()){
+            Set<Integer> target = set.getValue().get();
+            for(int i = 0; i < size; i++) target.add(elements[i]);
+            row(set.getKey(), measureSet(target, size, elements));
+        }
+    }
+
+    static void printMaps(int size){
+        Integer[] elements = boxed(size + batchSize(size));
+        header("MAPS", "get", "put", "remove", "containsKey");
+        for(Map.Entry<String, Supplier<Map<Integer, Integer>>> map : MAPS.entrySet()){
+            Map<Integer, Integer> target = map.getValue().get();
+            for(int i = 0; i < size; i++) target.put(elements[i], elements[i]);
+            row(map.getKey(), measureMap(target, size, elements));
+        }
+    }
+
+    static void printArrayListCapacity(int size){
+        Integer[] elements = boxed(size);
+        header("ARRAYLIST CAPACITY", "add (fill to n)");
+        Benchmark.Result growing = Benchmark.measure(() -> {
+            List<Integer> list = new ArrayList<>();
+            return i -> list.add(elements[i]) ? 1 : 0;
+        }, size);
+        Benchmark.Result presized = Benchmark.measure(() -> {
+            List<Integer> list = new ArrayList<>(size);
+            return i -> list.add(elements[i]) ? 1 : 0;
+        }, size);
+        row("ArrayList (default)", growing);
+        row("ArrayList (pre-sized)", presized);
+    }
+
+    // returns the results in the table order get, add, remove, contains.
+    static Benchmark.Result[] measureList(List<Integer> list, int size, Position position, Integer[] elements){
+        int batch = batchSize(size);
+        int existing = position.existing(size);
+        // the middle insertion point is fixed at the middle of the original list, so that the removes take out
+        // exactly the elements that the adds put in.
+        int middle = position.insert(size);
+        Integer probe = list.get(existing);
+        Benchmark.Result get = Benchmark.measure(i -> list.get(existing), batch);
+        Benchmark.Operation add = position == Position.TAIL
+                ? i -> list.add(elements[size + i]) ? 1 : 0
+                : i -> { list.add(middle, elements[size + i]); return 1; };
+        Benchmark.Operation remove = position == Position.TAIL
+                ? i -> list.remove(list.size() - 1)
+                : i -> list.remove(middle);
+        Benchmark.Result[] addRemove = Benchmark.measureAlternating(add, remove, batch);
+        Benchmark.Result contains = Benchmark.measure(i -> list.contains(probe) ? 1 : 0, batch);
+        return new Benchmark.Result[]{get, addRemove[0], addRemove[1], contains};
+    }
+
+    static Benchmark.Result[] measureSet(Set<Integer> set, int size, Integer[] elements){
+        int batch = batchSize(size);
+        Integer[] probes = probes(size, elements);
+        Benchmark.Result[] addRemove = Benchmark.measureAlternating(
+                i -> set.add(elements[size + i]) ? 1 : 0,
+                i -> set.remove(elements[size + i]) ? 1 : 0, batch);
+        Benchmark.Result contains = Benchmark.measure(i -> set.contains(probes[i & (PROBES - 1)]) ? 1 : 0);
+        return new Benchmark.Result[]{null, addRemove[0], addRemove[1], contains};
+    }
+
+    static Benchmark.Result[] measureMap(Map<Integer, Integer> map, int size, Integer[] elements){
+        int batch = batchSize(size);
+        Integer[] probes = probes(size, elements);
+        Benchmark.Result get = Benchmark.measure(i -> map.get(probes[i & (PROBES - 1)]));
+        Benchmark.Result[] putRemove = Benchmark.measureAlternating(
+                i -> map.put(elements[size + i], elements[size + i]) == null ? 1 : 0,
+                i -> map.remove(elements[size + i]) == null ? 0 : 1, batch);
+        Benchmark.Result containsKey = Benchmark.measure(i -> map.containsKey(probes[i & (PROBES - 1)]) ? 1 : 0);
+        return new Benchmark.Result[]{get, putRemove[0], putRemove[1], containsKey};
+    }
+
+    // number of operations per timed batch -> enough to hide the cost of System.nanoTime() for cheap operations,
+    // but few enough that O(n) operations on the largest lists still finish in a reasonable time.
+    static int batchSize(int size){
+        return Math.max(1, Math.min(1024, Math.min(size, 10_000_000 / size)));
+    }
+
+    // the elements are boxed up front, so that boxing is not counted in the time or the allocation of an operation.
+    static Integer[] boxed(int count){
+        Integer[] elements = new Integer[count];
+        for(int i = 0; i < count; i++) elements[i] = i;
+        return elements;
+    }
+
+    static Integer[] probes(int size, Integer[] elements){
+        Random random = new Random(42);
+        Integer[] probes = new Integer[PROBES];
+        for(int i = 0; i < PROBES; i++) probes[i] = elements[random.nextInt(size)];
+        return probes;
+    }
+
+    static void header(String title, String... columns){
+        System.out.println();
+        System.out.println(title);
+        StringBuilder line = new StringBuilder(String.format("%-28s", "Structure"));
+        for(String column : columns) line.append(String.format("%-20s", column));
+        System.out.println(line.toString().trim());
+    }
+
+    static void row(String structure, Benchmark.Result... cells){
+        StringBuilder line = new StringBuilder(String.format("%-28s", structure));
+        for(Benchmark.Result cell : cells) line.append(String.format("%-20s", cell == null ? "-" : cell));
+        System.out.println(line.toString().trim());
+    }
+}
@@ -0,0 +1,133 @@
+package DataStructures;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/*
+    An ArrayList<Integer> stores a reference to a boxed Integer object per element -> on a 64 bit JVM that is a 4 byte
+    (compressed) reference plus a 16 byte Integer, ie. ~20 bytes per element instead of 4, and every add allocates an
+    Integer (only -128 to 127 are cached) and every get follows a pointer to somewhere else in the heap.
+    IntArrayList stores the ints themselves in an int[], so there is no boxing on the hot path.
+    The Big O is the same as ArrayList (see class BigO);
+        get = O(1), add at the end = O(1) amortized, add/remove anywhere else = O(n), contains = O(n).
+ */
+public class IntArrayList {
+
+    private static final int DEFAULT_CAPACITY = 10;
+
+    private int[] elements;
+    private int size;
+
+    public IntArrayList(){
+        this(DEFAULT_CAPACITY);
+    }
+
+    // as with ArrayList, INITIALIZE to the expected size if you know it so that add never needs to resize.
+    public IntArrayList(int initialCapacity){
+        if(initialCapacity < 0) throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+        elements = new int[initialCapacity];
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    public int get(int index){
+        checkIndex(index, size);
+        return elements[index];
+    }
+
+    // returns the element previously at index.
+    public int set(int index, int element){
+        checkIndex(index, size);
+        int previous = elements[index];
+        elements[index] = element;
+        return previous;
+    }
+
+    public void add(int element){
+        if(size == elements.length) grow(size + 1);
+        elements[size++] = element;
+    }
+
+    public void add(int index, int element){
+        checkIndex(index, size + 1);
+        if(size == elements.length) grow(size + 1);
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = element;
+        size++;
+    }
+
+    // named removeAt rather than remove, since remove(int) would be ambiguous between an index and an element.
+    // returns the removed element.
+    public int removeAt(int index){
+        checkIndex(index, size);
+        int removed = elements[index];
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        size--;
+        return removed;
+    }
+
+    public int indexOf(int element){
+        for(int i = 0; i < size; i++){
+            if(elements[i] == element) return i;
+        }
+        return -1;
+    }
+
+    public boolean contains(int element){
+        return indexOf(element) >= 0;
+    }
+
+    public void clear(){
+        size = 0;
+    }
+
+    public void ensureCapacity(int minCapacity){
+        if(minCapacity > elements.length) grow(minCapacity);
+    }
+
+    public void forEach(IntConsumer action){
+        for(int i = 0; i < size; i++) action.accept(elements[i]);
+    }
+
+    public int[] toArray(){
+        return Arrays.copyOf(elements, size);
+    }
+
+    // grows by half again, as ArrayList does, so that a run of adds is O(1) amortized.
+    private void grow(int minCapacity){
+        int capacity = Math.max(minCapacity, elements.length + (elements.length >> 1));
+        if(capacity < 0) capacity = Integer.MAX_VALUE - 8; // the growth overflowed.
+        elements = Arrays.copyOf(elements, capacity);
+    }
+
+    private static void checkIndex(int index, int length){
+        if(index < 0 || index >= length) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + length);
+    }
+
+    @Override
+    public boolean equals(Object object){
+        if(this == object) return true;
+        if(!(object instanceof IntArrayList)) return false;
+        IntArrayList list = (IntArrayList) object;
+        return Arrays.equals(elements, 0, size, list.elements, 0, list.size);
+    }
+
+    // the same hash as List.hashCode() would give for the boxed elements.
+    @Override
+    public int hashCode(){
+        int result = 1;
+        for(int i = 0; i < size; i++) result = 31 * result + elements[i];
+        return result;
+    }
+
+    @Override
+    public String toString(){
+        return Arrays.toString(toArray());
+    }
+}
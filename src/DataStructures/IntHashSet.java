@@ -0,0 +1,166 @@
+package DataStructures;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/*
+    A HashSet<Integer> is really a HashMap<Integer, Object> -> each element costs a 32 byte HashMap.Node, a 16 byte
+    Integer and a slot in the table, ie. roughly 50-60 bytes for 4 bytes of data, and each add allocates a Node (and
+    usually an Integer).
+    IntHashSet uses OPEN ADDRESSING instead -> the ints are stored directly in one int[] table, and a collision is
+    resolved by LINEAR PROBING, ie. trying the next slot along until an empty one is found. Probing along an array
+    is cache friendly, and there are no nodes or boxes, so add/remove/contains are O(1) with no allocation (except
+    when the table doubles in size).
+
+    0 marks an empty slot, so the element 0 itself is tracked with a separate flag.
+    Removal uses BACKWARD SHIFT deletion rather than tombstones -> the elements after the removed one are moved back
+    into the gap if their probe sequence passes through it, so lookups never have to skip over deleted slots.
+ */
+public class IntHashSet {
+
+    private static final int MIN_CAPACITY = 8;
+    // the largest power of 2 an array can have -> the table cannot double beyond it, so at MAX_SIZE elements (3/4 of
+    // it, see maxSize) the set is full.
+    static final int MAX_CAPACITY = 1 << 30;
+    static final int MAX_SIZE = maxSize(MAX_CAPACITY);
+
+    private int[] table;
+    private int mask;
+    private int size; // number of elements in the table, not counting 0.
+    private boolean containsZero;
+
+    public IntHashSet(){
+        this(MIN_CAPACITY / 2);
+    }
+
+    // sized so that expectedSize elements fit without a resize.
+    public IntHashSet(int expectedSize){
+        if(expectedSize < 0) throw new IllegalArgumentException("Illegal size: " + expectedSize);
+        table = new int[capacityFor(expectedSize)];
+        mask = table.length - 1;
+    }
+
+    public int size(){
+        return containsZero ? size + 1 : size;
+    }
+
+    public boolean isEmpty(){
+        return size() == 0;
+    }
+
+    public boolean contains(int element){
+        if(element == 0) return containsZero;
+        int[] table = this.table;
+        for(int i = index(element, mask); ; i = (i + 1) & mask){
+            int slot = table[i];
+            if(slot == element) return true;
+            if(slot == 0) return false;
+        }
+    }
+
+    // returns true if the set did not already contain the element.
+    public boolean add(int element){
+        if(element == 0){
+            boolean added = !containsZero;
+            containsZero = true;
+            return added;
+        }
+        for(int i = index(element, mask); ; i = (i + 1) & mask){
+            int slot = table[i];
+            if(slot == element) return false;
+            if(slot == 0){
+                if(size == MAX_SIZE) throw new IllegalStateException("IntHashSet is full: " + size() + " elements");
+                table[i] = element;
+                if(++size > maxSize(table.length)) resize(table.length * 2);
+                return true;
+            }
+        }
+    }
+
+    // returns true if the set contained the element.
+    public boolean remove(int element){
+        if(element == 0){
+            boolean removed = containsZero;
+            containsZero = false;
+            return removed;
+        }
+        for(int i = index(element, mask); ; i = (i + 1) & mask){
+            int slot = table[i];
+            if(slot == 0) return false;
+            if(slot == element){
+                shiftBack(table, mask, i);
+                size--;
+                return true;
+            }
+        }
+    }
+
+    public void clear(){
+        Arrays.fill(table, 0);
+        size = 0;
+        containsZero = false;
+    }
+
+    public void forEach(IntConsumer action){
+        if(containsZero) action.accept(0);
+        for(int slot : table){
+            if(slot != 0) action.accept(slot);
+        }
+    }
+
+    public int[] toArray(){
+        int[] result = new int[size()];
+        int count = 0;
+        if(containsZero) result[count++] = 0;
+        for(int slot : table){
+            if(slot != 0) result[count++] = slot;
+        }
+        return result;
+    }
+
+    private void resize(int capacity){
+        int[] old = table;
+        table = new int[capacity];
+        mask = capacity - 1;
+        for(int slot : old){
+            if(slot == 0) continue;
+            int i = index(slot, mask);
+            while(table[i] != 0) i = (i + 1) & mask;
+            table[i] = slot;
+        }
+    }
+
+    // Empties slot gap, then walks the rest of its run moving each element back into the gap unless its home slot
+    // lies cyclically after the gap (in which case moving it would put it before its home, where lookups never look).
+    static void shiftBack(int[] table, int mask, int gap){
+        for(int i = (gap + 1) & mask; table[i] != 0; i = (i + 1) & mask){
+            int home = index(table[i], mask);
+            if(((i - home) & mask) >= ((i - gap) & mask)){
+                table[gap] = table[i];
+                gap = i;
+            }
+        }
+        table[gap] = 0;
+    }
+
+    // Multiplying by the golden ratio (Fibonacci hashing) spreads keys that differ only in their high bits, or which
+    // are sequential, across the whole table -> the low bits of the raw int would put 0, 1024, 2048... all in one slot.
+    static int index(int key, int mask){
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    // the table is kept at most 3/4 full, since linear probing slows down sharply as the table fills.
+    static int maxSize(int capacity){
+        return capacity - (capacity >>> 2);
+    }
+
+    static int capacityFor(int expectedSize){
+        int capacity = MIN_CAPACITY;
+        while(maxSize(capacity) < expectedSize){
+            if(capacity >= MAX_CAPACITY) throw new IllegalArgumentException("Too many elements: " + expectedSize);
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,160 @@
+package DataStructures;
+
+import java.util.Arrays;
+
+/*
+    An open addressing int to int map -> the same design as IntHashSet (read that first), with the values stored in a
+    second int[] alongside the keys. A HashMap<Integer, Integer> allocates a Node and usually two Integers per entry;
+    this allocates nothing except when the table doubles in size.
+    Useful for counting, eg. how many aliens have each number of eyes -> counts.addTo(numberOfEyes, 1).
+ */
+public class IntIntHashMap {
+
+    // receives each entry from forEach.
+    public interface IntIntConsumer {
+        void accept(int key, int value);
+    }
+
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size; // number of entries in the table, not counting the key 0.
+    private boolean containsZeroKey;
+    private int zeroValue;
+
+    public IntIntHashMap(){
+        this(4);
+    }
+
+    // sized so that expectedSize entries fit without a resize.
+    public IntIntHashMap(int expectedSize){
+        if(expectedSize < 0) throw new IllegalArgumentException("Illegal size: " + expectedSize);
+        int capacity = IntHashSet.capacityFor(expectedSize);
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    public int size(){
+        return containsZeroKey ? size + 1 : size;
+    }
+
+    public boolean isEmpty(){
+        return size() == 0;
+    }
+
+    public boolean containsKey(int key){
+        if(key == 0) return containsZeroKey;
+        return slotOf(key) >= 0;
+    }
+
+    public int getOrDefault(int key, int defaultValue){
+        if(key == 0) return containsZeroKey ? zeroValue : defaultValue;
+        int slot = slotOf(key);
+        return slot >= 0 ? values[slot] : defaultValue;
+    }
+
+    public void put(int key, int value){
+        if(key == 0){
+            containsZeroKey = true;
+            zeroValue = value;
+            return;
+        }
+        int slot = insertionSlot(key);
+        values[slot] = value;
+    }
+
+    // adds increment to the value for key (which starts at 0 if absent), and returns the new value.
+    public int addTo(int key, int increment){
+        if(key == 0){
+            zeroValue = containsZeroKey ? zeroValue + increment : increment;
+            containsZeroKey = true;
+            return zeroValue;
+        }
+        int slot = insertionSlot(key);
+        return values[slot] += increment;
+    }
+
+    // returns true if the map contained the key.
+    public boolean remove(int key){
+        if(key == 0){
+            boolean removed = containsZeroKey;
+            containsZeroKey = false;
+            return removed;
+        }
+        int slot = slotOf(key);
+        if(slot < 0) return false;
+        shiftBack(slot);
+        size--;
+        return true;
+    }
+
+    public void clear(){
+        Arrays.fill(keys, 0);
+        size = 0;
+        containsZeroKey = false;
+    }
+
+    public void forEach(IntIntConsumer action){
+        if(containsZeroKey) action.accept(0, zeroValue);
+        for(int i = 0; i < keys.length; i++){
+            if(keys[i] != 0) action.accept(keys[i], values[i]);
+        }
+    }
+
+    // the slot holding key, or -1 if it is absent.
+    private int slotOf(int key){
+        int[] keys = this.keys;
+        for(int i = IntHashSet.index(key, mask); ; i = (i + 1) & mask){
+            int slot = keys[i];
+            if(slot == key) return i;
+            if(slot == 0) return -1;
+        }
+    }
+
+    // the slot holding key, claiming an empty one (with value 0) if it is absent.
+    private int insertionSlot(int key){
+        for(int i = IntHashSet.index(key, mask); ; i = (i + 1) & mask){
+            int slot = keys[i];
+            if(slot == key) return i;
+            if(slot == 0){
+                if(size == IntHashSet.MAX_SIZE) throw new IllegalStateException("IntIntHashMap is full: " + size() + " entries");
+                keys[i] = key;
+                values[i] = 0;
+                if(++size > IntHashSet.maxSize(keys.length)){
+                    resize(keys.length * 2);
+                    return slotOf(key);
+                }
+                return i;
+            }
+        }
+    }
+
+    // backward shift deletion, as in IntHashSet.shiftBack, moving the values along with their keys.
+    private void shiftBack(int gap){
+        for(int i = (gap + 1) & mask; keys[i] != 0; i = (i + 1) & mask){
+            int home = IntHashSet.index(keys[i], mask);
+            if(((i - home) & mask) >= ((i - gap) & mask)){
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        keys[gap] = 0;
+    }
+
+    private void resize(int capacity){
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        for(int j = 0; j < oldKeys.length; j++){
+            if(oldKeys[j] == 0) continue;
+            int i = IntHashSet.index(oldKeys[j], mask);
+            while(keys[i] != 0) i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+        }
+    }
+}
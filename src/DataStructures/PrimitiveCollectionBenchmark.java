@@ -0,0 +1,178 @@
+package DataStructures;
+
+import BigO.Benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/*
+    Compares IntArrayList, IntHashSet and IntIntHashMap with the boxed java.util collections, in the same layout as the
+    tables in class BigO. Each row shows the retained heap per element, and each operation cell shows the throughput
+    and the bytes allocated per operation, eg. "85.2M/s 16B" -> the allocation is the boxing.
+        get      -> get(random index) for the lists, get(random key present) for the maps.
+        add      -> add a new element (put a new key for the maps), at the end for the lists.
+        remove   -> remove the elements added by the add column, so the size stays at n.
+        contains -> contains(random element present) -> for the lists this is a linear search, so O(n).
+
+    Usage: java DataStructures.PrimitiveCollectionBenchmark [sizes...]   (default 1000 and 1,000,000)
+ */
+public class PrimitiveCollectionBenchmark {
+
+    private static final int PROBES = 1024; // a power of 2.
+
+    public static void main(String[] args){
+        int[] sizes = {1_000, 1_000_000};
+        if(args.length > 0){
+            sizes = new int[args.length];
+            for(int i = 0; i < args.length; i++) sizes[i] = Integer.parseInt(args[i]);
+        }
+        for(int size : sizes){
+            System.out.printf("%n======== n = %,d ========%n", size);
+            header();
+            compareLists(size);
+            compareSets(size);
+            compareMaps(size);
+        }
+    }
+
+    static void compareLists(int size){
+        int batch = batchSize(size);
+        int[] probes = probes(size);
+        int[] indexes = new int[PROBES];
+        for(int i = 0; i < PROBES; i++) indexes[i] = probes[i] % size;
+
+        List<Integer> boxed = new ArrayList<>();
+        for(int i = 0; i < size; i++) boxed.add(i);
+        double boxedBytes = bytesPerElement(size, () -> {
+            List<Integer> list = new ArrayList<>();
+            for(int i = 0; i < size; i++) list.add(i);
+            return list;
+        });
+        Benchmark.Result[] boxedAddRemove = Benchmark.measureAlternating(
+                i -> boxed.add(size + i) ? 1 : 0, i -> boxed.remove(boxed.size() - 1), batch);
+        row("ArrayList<Integer>", boxedBytes,
+                Benchmark.measure(i -> boxed.get(indexes[i & (PROBES - 1)])), boxedAddRemove[0], boxedAddRemove[1],
+                Benchmark.measure(i -> boxed.contains(probes[i & (PROBES - 1)]) ? 1 : 0, 16));
+
+        IntArrayList primitive = new IntArrayList();
+        for(int i = 0; i < size; i++) primitive.add(i);
+        double primitiveBytes = bytesPerElement(size, () -> {
+            IntArrayList list = new IntArrayList();
+            for(int i = 0; i < size; i++) list.add(i);
+            return list;
+        });
+        Benchmark.Result[] primitiveAddRemove = Benchmark.measureAlternating(
+                i -> { primitive.add(size + i); return 1; }, i -> primitive.removeAt(primitive.size() - 1), batch);
+        row("IntArrayList", primitiveBytes,
+                Benchmark.measure(i -> primitive.get(indexes[i & (PROBES - 1)])), primitiveAddRemove[0], primitiveAddRemove[1],
+                Benchmark.measure(i -> primitive.contains(probes[i & (PROBES - 1)]) ? 1 : 0, 16));
+    }
+
+    static void compareSets(int size){
+        int batch = batchSize(size);
+        int[] probes = probes(size);
+
+        Set<Integer> boxed = new HashSet<>();
+        for(int i = 0; i < size; i++) boxed.add(i);
+        double boxedBytes = bytesPerElement(size, () -> {
+            Set<Integer> set = new HashSet<>();
+            for(int i = 0; i < size; i++) set.add(i);
+            return set;
+        });
+        Benchmark.Result[] boxedAddRemove = Benchmark.measureAlternating(
+                i -> boxed.add(size + i) ? 1 : 0, i -> boxed.remove(size + i) ? 1 : 0, batch);
+        row("HashSet<Integer>", boxedBytes, null, boxedAddRemove[0], boxedAddRemove[1],
+                Benchmark.measure(i -> boxed.contains(probes[i & (PROBES - 1)]) ? 1 : 0));
+
+        IntHashSet primitive = new IntHashSet();
+        for(int i = 0; i < size; i++) primitive.add(i);
+        double primitiveBytes = bytesPerElement(size, () -> {
+            IntHashSet set = new IntHashSet();
+            for(int i = 0; i < size; i++) set.add(i);
+            return set;
+        });
+        Benchmark.Result[] primitiveAddRemove = Benchmark.measureAlternating(
+                i -> primitive.add(size + i) ? 1 : 0, i -> primitive.remove(size + i) ? 1 : 0, batch);
+        row("IntHashSet", primitiveBytes, null, primitiveAddRemove[0], primitiveAddRemove[1],
+                Benchmark.measure(i -> primitive.contains(probes[i & (PROBES - 1)]) ? 1 : 0));
+    }
+
+    static void compareMaps(int size){
+        int batch = batchSize(size);
+        int[] probes = probes(size);
+
+        Map<Integer, Integer> boxed = new HashMap<>();
+        for(int i = 0; i < size; i++) boxed.put(i, i);
+        double boxedBytes = bytesPerElement(size, () -> {
+            Map<Integer, Integer> map = new HashMap<>();
+            for(int i = 0; i < size; i++) map.put(i, i);
+            return map;
+        });
+        Benchmark.Result[] boxedPutRemove = Benchmark.measureAlternating(
+                i -> boxed.put(size + i, i) == null ? 1 : 0, i -> boxed.remove(size + i) == null ? 0 : 1, batch);
+        row("HashMap<Integer, Integer>", boxedBytes,
+                Benchmark.measure(i -> boxed.get(probes[i & (PROBES - 1)])), boxedPutRemove[0], boxedPutRemove[1],
+                Benchmark.measure(i -> boxed.containsKey(probes[i & (PROBES - 1)]) ? 1 : 0));
+
+        IntIntHashMap primitive = new IntIntHashMap();
+        for(int i = 0; i < size; i++) primitive.put(i, i);
+        double primitiveBytes = bytesPerElement(size, () -> {
+            IntIntHashMap map = new IntIntHashMap();
+            for(int i = 0; i < size; i++) map.put(i, i);
+            return map;
+        });
+        Benchmark.Result[] primitivePutRemove = Benchmark.measureAlternating(
+                i -> { primitive.put(size + i, i); return 1; }, i -> primitive.remove(size + i) ? 1 : 0, batch);
+        row("IntIntHashMap", primitiveBytes,
+                Benchmark.measure(i -> primitive.getOrDefault(probes[i & (PROBES - 1)], -1)), primitivePutRemove[0], primitivePutRemove[1],
+                Benchmark.measure(i -> primitive.containsKey(probes[i & (PROBES - 1)]) ? 1 : 0));
+    }
+
+    // the heap retained by a freshly built structure, per element -> measured on its own copy, so that nothing else
+    // built by the benchmark is collected (or allocated) between the two readings.
+    static double bytesPerElement(int size, Supplier<Object> build){
+        long before = Benchmark.usedHeapAfterGc();
+        Object structure = build.get();
+        long after = Benchmark.usedHeapAfterGc();
+        Benchmark.consume(structure);
+        return (double) (after - before) / size;
+    }
+
+    static int batchSize(int size){
+        return Math.max(1, Math.min(1024, size));
+    }
+
+    // random elements that are present, ie. in [0, size).
+    static int[] probes(int size){
+        Random random = new Random(42);
+        int[] probes = new int[PROBES];
+        for(int i = 0; i < PROBES; i++) probes[i] = random.nextInt(size);
+        return probes;
+    }
+
+    static void header(){
+        System.out.println();
+        System.out.println(String.format("%-28s%-16s%-18s%-18s%-18s%-18s",
+                "Structure", "bytes/element", "get", "add", "remove", "contains").trim());
+    }
+
+    static void row(String structure, double bytesPerElement, Benchmark.Result get, Benchmark.Result add,
+                    Benchmark.Result remove, Benchmark.Result contains){
+        System.out.println(String.format("%-28s%-16s%-18s%-18s%-18s%-18s", structure,
+                String.format("%.1f", bytesPerElement), cell(get), cell(add), cell(remove), cell(contains)).trim());
+    }
+
+    static String cell(Benchmark.Result result){
+        if(result == null) return "-";
+        double opsPerSecond = result.opsPerSecond();
+        String throughput = opsPerSecond >= 1e6 ? String.format("%.1fM/s", opsPerSecond / 1e6)
+                : String.format("%.1fK/s", opsPerSecond / 1e3);
+        return throughput + " " + Benchmark.formatBytes(result.bytesPerOp());
+    }
+}
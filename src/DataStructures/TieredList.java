@@ -0,0 +1,228 @@
+package DataStructures;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/*
+    A TIERED VECTOR -> a list that sits between ArrayList and LinkedList (see the notes in class BigO);
+        * ArrayList inserts/removes in the middle in O(n) because every element after the position has to shift.
+        * LinkedList inserts/removes in the middle in O(n) because it has to walk the nodes to find the position,
+          chasing a pointer to somewhere else in memory at every step.
+    A TieredList stores its elements in a row of fixed size chunks of B elements each. Every chunk is full except the
+    last, so element i is always at chunk i / B, offset i % B -> get and set are O(1), as with an ArrayList.
+    Each chunk is a CIRCULAR BUFFER (a ring with a moving head), so adding or removing at either end of a chunk is
+    O(1). To insert in the middle only the one chunk holding the position shifts its elements (O(B)), and then every
+    later chunk passes its last element on to the front of the next chunk (O(1) each, O(n / B) in total).
+    Keeping B close to sqrt(n) makes insert/remove anywhere O(sqrt n) -> for a million elements that is about a
+    thousand moves, rather than the half a million of an ArrayList or LinkedList.
+    Chunks are contiguous arrays, so get and iteration stay cache friendly.
+
+LIST            get         add (end)   add/remove (middle)     add/remove (head)
+ArrayList       O(1)        O(1)        O(n)                    O(n)
+LinkedList      O(n)        O(1)        O(n)                    O(1)
+TieredList      O(1)        O(1)        O(sqrt n)               O(sqrt n)
+ */
+public class TieredList<E> extends AbstractList<E> implements RandomAccess {
+
+    private static final int MIN_SHIFT = 4; // chunks start at 16 elements.
+
+    private Chunk[] chunks = new Chunk[4];
+    private int chunkCount;
+    private int shift = MIN_SHIFT; // chunk size B = 1 << shift.
+    private int size;
+
+    public TieredList(){
+    }
+
+    public TieredList(Collection<? extends E> elements){
+        int chunkSize = 1 << MIN_SHIFT;
+        while(2L * chunkSize * chunkSize < elements.size()) chunkSize <<= 1;
+        shift = Integer.numberOfTrailingZeros(chunkSize);
+        addAll(elements);
+    }
+
+    @Override
+    public int size(){
+        return size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index){
+        checkIndex(index, size);
+        return (E) chunks[index >>> shift].get(index & (chunkSize() - 1));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E set(int index, E element){
+        checkIndex(index, size);
+        return (E) chunks[index >>> shift].set(index & (chunkSize() - 1), element);
+    }
+
+    @Override
+    public boolean add(E element){
+        if(size == chunkCount << shift) addChunk();
+        chunks[chunkCount - 1].addLast(element);
+        size++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public void add(int index, E element){
+        checkIndex(index, size + 1);
+        if(size == chunkCount << shift) addChunk();
+        int target = index >>> shift;
+        // make room by passing the last element of each chunk after the target on to the front of the next one.
+        for(int c = chunkCount - 1; c > target; c--){
+            chunks[c].addFirst(chunks[c - 1].removeLast());
+        }
+        chunks[target].insert(index - (target << shift), element);
+        size++;
+        modCount++;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E remove(int index){
+        checkIndex(index, size);
+        int target = index >>> shift;
+        Object removed = chunks[target].removeAt(index & (chunkSize() - 1));
+        // close the gap by pulling the first element of each later chunk back into the chunk before it.
+        for(int c = target + 1; c < chunkCount; c++){
+            chunks[c - 1].addLast(chunks[c].removeFirst());
+        }
+        if(chunks[chunkCount - 1].size == 0) chunks[--chunkCount] = null;
+        size--;
+        // and halve B once there are fewer than B / 4 chunks, so that a list which has shrunk goes back to small
+        // chunks (B / 4 rather than B / 2, so that adding and removing around the boundary does not rebuild each time).
+        if(shift > MIN_SHIFT && chunkCount < chunkSize() >>> 2) rebuild(shift - 1);
+        modCount++;
+        return (E) removed;
+    }
+
+    @Override
+    public void clear(){
+        chunks = new Chunk[4];
+        chunkCount = 0;
+        shift = MIN_SHIFT;
+        size = 0;
+        modCount++;
+    }
+
+    private int chunkSize(){
+        return 1 << shift;
+    }
+
+    private void addChunk(){
+        // keep B close to sqrt(n) -> once there are more than 2B chunks, double B (which halves the number of chunks).
+        if(chunkCount >= 2 << shift) rebuild(shift + 1);
+        if(chunkCount == chunks.length) chunks = Arrays.copyOf(chunks, chunkCount * 2);
+        chunks[chunkCount++] = new Chunk(chunkSize());
+    }
+
+    // repacks every element into chunks of 1 << newShift -> O(n). addChunk doubles B once there are 2B chunks, and remove
+    // halves it once there are fewer than B/4 (chunkCount < chunkSize() >>> 2). Just after a doubling there are B/2
+    // chunks of the new B, so undoing it takes n to halve, and just after a halving there are B chunks, so undoing it
+    // takes n to double (the rebuild the other way is 4x away) -> so there are at least about n/2 adds or removes
+    // between rebuilds to amortize each over, even when n goes back and forth around a threshold.
+    private void rebuild(int newShift){
+        int newSize = 1 << newShift;
+        Chunk[] rebuilt = new Chunk[Math.max(4, (size >>> newShift) + 2)];
+        int count = 0;
+        for(int c = 0; c < chunkCount; c++){
+            Chunk chunk = chunks[c];
+            for(int i = 0; i < chunk.size; i++){
+                if(count == 0 || rebuilt[count - 1].size == newSize) rebuilt[count++] = new Chunk(newSize);
+                rebuilt[count - 1].addLast(chunk.get(i));
+            }
+        }
+        chunks = rebuilt;
+        chunkCount = count;
+        shift = newShift;
+    }
+
+    private static void checkIndex(int index, int length){
+        if(index < 0 || index >= length) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + length);
+    }
+
+    // a fixed capacity circular buffer -> element i is at items[(head + i) & mask].
+    private static final class Chunk {
+        final Object[] items;
+        final int mask;
+        int head;
+        int size;
+
+        Chunk(int capacity){
+            items = new Object[capacity];
+            mask = capacity - 1;
+        }
+
+        Object get(int i){
+            return items[(head + i) & mask];
+        }
+
+        Object set(int i, Object element){
+            int slot = (head + i) & mask;
+            Object previous = items[slot];
+            items[slot] = element;
+            return previous;
+        }
+
+        void addFirst(Object element){
+            head = (head - 1) & mask;
+            items[head] = element;
+            size++;
+        }
+
+        void addLast(Object element){
+            items[(head + size) & mask] = element;
+            size++;
+        }
+
+        Object removeFirst(){
+            Object removed = items[head];
+            items[head] = null;
+            head = (head + 1) & mask;
+            size--;
+            return removed;
+        }
+
+        Object removeLast(){
+            int slot = (head + size - 1) & mask;
+            Object removed = items[slot];
+            items[slot] = null;
+            size--;
+            return removed;
+        }
+
+        // shifts whichever side of position i is shorter, so at most B / 2 moves.
+        void insert(int i, Object element){
+            if(i < size / 2){
+                head = (head - 1) & mask;
+                for(int j = 0; j < i; j++) items[(head + j) & mask] = items[(head + j + 1) & mask];
+            } else {
+                for(int j = size; j > i; j--) items[(head + j) & mask] = items[(head + j - 1) & mask];
+            }
+            items[(head + i) & mask] = element;
+            size++;
+        }
+
+        Object removeAt(int i){
+            Object removed = get(i);
+            if(i < size / 2){
+                for(int j = i; j > 0; j--) items[(head + j) & mask] = items[(head + j - 1) & mask];
+                items[head] = null;
+                head = (head + 1) & mask;
+            } else {
+                for(int j = i; j < size - 1; j++) items[(head + j) & mask] = items[(head + j + 1) & mask];
+                items[(head + size - 1) & mask] = null;
+            }
+            size--;
+            return removed;
+        }
+    }
+}
@@ -1,33 +1,116 @@
 package Equals;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.lang.reflect.Field;
 //import java.util.Arrays to implement the method Arrays.equal which should be used to compare arrays.
 import java.util.Arrays;
 //import the static method equal (note - this just makes implementing equals in multiple classes easier (DRY principle)).
 import static Equals.Equal.equal;
+//the static hash methods do the same for hashCode.
+import static Equals.Hash.MULTIPLIER;
+import static Equals.Hash.hash;
+import static Equals.Hash.mix;
 
 /**
  * Created by Jo on 20/06/2015.
  */
-public class Alien {
+//Serializable so that a catalogue can be saved with ObjectOutputStream (compare AlienCatalogue, which maps a binary file).
+public class Alien implements Serializable {
 
-    private String colour;
-    private String colourOfSpots; //can be null if not of a spotted variety
-    private int numberOfEyes;
-    private boolean fromZorb; //true if the alien is from the planet Zorb
-    private int[] legLengths; //some aliens have different length legs - leg lengths from left to right are stored in this array
+    private static final long serialVersionUID = 1L;
+
+    //final -> none of the fields used in equals and hashCode can change once the alien has been constructed.
+    private final String colour;
+    private final String colourOfSpots; //can be null if not of a spotted variety
+    private final int numberOfEyes;
+    private final boolean fromZorb; //true if the alien is from the planet Zorb
+    private final int[] legLengths; //some aliens have different length legs - leg lengths from left to right are stored in this array
+    // cache the hashCode after it has first been calculated, as in class ImmutableAlien (see there for why it is volatile).
+    // this is safe because the fields are final (and legLengths is a private copy), so the hashCode can never change.
+    // hashIsZero records that the hashCode has been calculated and really is 0 ->
+    // otherwise 0 would mean "not yet calculated" and such an alien would be rehashed on every call.
+    // transient -> they are derived state rather than part of the alien, so EquivalenceGenerator (and serialization) skip them.
+    private transient volatile int hashCode;
+    private transient boolean hashIsZero;
+    // the counts recorded by the instrumented methods below (see EqualsMetrics), in the order equals compares the fields.
+    private static final EqualsMetrics.Counters METRICS = EqualsMetrics.ENABLED ? EqualsMetrics.counters(Alien.class,
+            "colour", "colourOfSpots", "numberOfEyes", "fromZorb", "legLengths") : null;
 
     public Alien(String colour, String colourOfSpots, int numberOfEyes, boolean fromZorb, int[] legLengths){
         this.colour = colour;
         this.colourOfSpots = colourOfSpots;
         this.numberOfEyes = numberOfEyes;
         this.fromZorb = fromZorb;
-        this.legLengths = legLengths;
+        // copy the array, since the caller could otherwise change the legLengths (and so the cached hashCode would be wrong).
+        this.legLengths = legLengths == null ? null : legLengths.clone();
+    }
+
+    //deserialization does not call the constructor, so it would not copy legLengths -> a crafted stream could give an alien
+    //an array which is also referenced elsewhere in the stream (and so can be changed after the alien has cached its
+    //hashCode). So readObject copies it, as the constructor does. The field is final, so the copy is set by reflection.
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if(legLengths == null) return;
+        try {
+            LegLengths.FIELD.set(this, legLengths.clone());
+        } catch(IllegalAccessException e){
+            InvalidObjectException invalid = new InvalidObjectException("Cannot copy legLengths");
+            invalid.initCause(e);
+            throw invalid;
+        }
+    }
+
+    //the Field of legLengths, looked up when an alien is first deserialized (rather than whenever Alien is loaded).
+    private static final class LegLengths {
+        static final Field FIELD = field();
+
+        private static Field field(){
+            try {
+                Field field = Alien.class.getDeclaredField("legLengths");
+                field.setAccessible(true);
+                return field;
+            } catch(NoSuchFieldException e){
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    public String getColour(){
+        return colour;
+    }
+
+    public String getColourOfSpots(){
+        return colourOfSpots;
+    }
+
+    public int getNumberOfEyes(){
+        return numberOfEyes;
+    }
+
+    public boolean isFromZorb(){
+        return fromZorb;
+    }
+
+    // return a copy of the array, for the same reason that the constructor copies it.
+    public int[] getLegLengths(){
+        return legLengths == null ? null : legLengths.clone();
+    }
+
+    // the array itself, not a copy -> only for code in this package which does not change it (eg. AlienCatalogue, so
+    // that a lookup does not allocate).
+    int[] legLengths(){
+        return legLengths;
     }
 
     //better to use Apache Commons EqualsBuilder to override equals.
     //start with the fields that have the most significance first, ie. ==, instanceOf, fields.
     @Override
     public boolean equals(Object object){
+        //when instrumented (see EqualsMetrics) the comparisons are made one at a time instead, to record which failed.
+        if(EqualsMetrics.ENABLED) return instrumentedEquals(object);
 
         if(this == object) return true;
         //instanceOf checks for null, and also supertypes (as opposed to object.getClass())
@@ -46,24 +129,76 @@ public class Alien {
                 equal(this.fromZorb, alien.fromZorb) && Arrays.equals(this.legLengths, alien.legLengths);
     }
 
+    //the same comparisons as equals, recording how it returned -> the first field which differs (by its index in METRICS), and the time taken.
+    private boolean instrumentedEquals(Object object){
+        if(this == object){
+            EqualsMetrics.equalsIdentical(METRICS);
+            return true;
+        }
+        if(!(object instanceof Alien)){
+            EqualsMetrics.equalsOtherType(METRICS);
+            return false;
+        }
+        Alien alien = (Alien) object;
+        long start = EqualsMetrics.startCompare();
+        int mismatch = !equal(this.colour, alien.colour) ? 0
+                : !equal(this.colourOfSpots, alien.colourOfSpots) ? 1
+                : !equal(this.numberOfEyes, alien.numberOfEyes) ? 2
+                : !equal(this.fromZorb, alien.fromZorb) ? 3
+                : !Arrays.equals(this.legLengths, alien.legLengths) ? 4
+                : -1;
+        EqualsMetrics.equalsCompared(METRICS, start, mismatch);
+        return mismatch < 0;
+    }
+
     //best to implement hashCode using Apache Commons HashCodeBuilder or an IDE.
     //To implement yourself;
-    // 1) Take a prime number as a hash to result in a distinct hashCode for a distinct object.
-    // 2) Take a different prime number as a multiplier.
-    // 3) Compute the hashCode for each field that is used in equals, and add to the hash to calculate the final hash.
-    // Check each field for null first to avoid a NullPointerException -> if a field is null then return zero.
-    // If a field is a numeric data type simply convert to int, and add to the hash.
+    // 1) Start with a non-zero constant as the hash.
+    // 2) Take an odd number as a multiplier. 31 is the usual choice, but use a large odd constant such as Hash.MULTIPLIER
+    //    when fields are Strings or arrays, whose own hashCodes are built with 31 (see Hash.MULTIPLIER for why).
+    // 3) Compute the hashCode for each field that is used in equals, and add it to the hash multiplied by the multiplier.
+    // Use the static Hash.hash methods to hash each field -> they check for null (a null field hashes to zero), and hash
+    // each kind of field consistently with how Equal compares it.
+    // NOTE: hash arrays with Arrays.hashCode (as hash(int[]) does), NOT array.hashCode() -> equals compares legLengths with
+    // Arrays.equals, but legLengths.hashCode() is the identity hash of the array object, so equal aliens would get
+    // different hashCodes and land in different HashMap buckets (ie. a HashMap would never find them equal).
+    // 4) Mix the final result (see Hash.mix) so that similar aliens don't end up with similar hashCodes.
     // If the object is immutable then you can calculate the hashCode once and then cache it for increased performance.
     // To see how to cache the hashCode see the example in the  class ImmutableAlien in package Immutable.
     @Override
     public int hashCode(){
-        int hash = 17;
-        int result = 3;
-        result = hash * result + (colour == null? 0 : colour.hashCode());
-        result = hash * result + (colourOfSpots == null? 0 : colourOfSpots.hashCode());
-        result = hash * result + numberOfEyes;
-        result = hash * result + (fromZorb? 0 : 7);
-        result = hash * result + (legLengths == null? 0 : legLengths.hashCode());
+        if(EqualsMetrics.ENABLED) return instrumentedHashCode();
+        //read the cache once -> if it is != 0 (or hashIsZero) then it has already been calculated, so return the cached result.
+        int cached = hashCode;
+        if(cached != 0 || hashIsZero) return cached;
+        return computeHashCode();
+    }
+
+    //calculated only on the first call (kept out of hashCode, so that the cached path is small enough to inline anywhere).
+    private int computeHashCode(){
+        int result = 17;
+        result = MULTIPLIER * result + hash(colour);
+        result = MULTIPLIER * result + hash(colourOfSpots);
+        result = MULTIPLIER * result + hash(numberOfEyes);
+        result = MULTIPLIER * result + hash(fromZorb);
+        result = MULTIPLIER * result + hash(legLengths);
+        result = mix(result);
+        //cache in the field hashCode (or, for a hashCode of 0, in hashIsZero).
+        if(result == 0) hashIsZero = true;
+        else hashCode = result;
+        return result;
+    }
+
+    //the same as hashCode, recording whether the cached hashCode was returned, and the time taken to calculate it.
+    private int instrumentedHashCode(){
+        int cached = hashCode;
+        if(cached != 0 || hashIsZero){
+            EqualsMetrics.hashCodeCached(METRICS);
+            return cached;
+        }
+        long start = EqualsMetrics.startHashCode();
+        int result = computeHashCode();
+        EqualsMetrics.hashCodeComputed(METRICS, start);
         return result;
     }
 }
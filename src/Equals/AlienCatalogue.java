@@ -0,0 +1,550 @@
+package Equals;
+
+import DataStructures.IntArrayList;
+import Immutable.ImmutableAlien;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static Equals.Hash.mix;
+
+/*
+    A catalogue of aliens in a binary file, which is read by MAPPING the file into memory rather than by reading it.
+
+    Loading a catalogue with ObjectInputStream (or from text) has to read the whole file, and construct every alien and
+    its legLengths array on the heap, before the first alien can be used -> for millions of aliens that takes seconds,
+    and the heap then holds a copy of the whole file as objects. A mapped file is opened in microseconds, since the
+    operating system only reads a page of the file (4KB) when it is first touched, and the pages are shared with the
+    operating system's file cache rather than copied onto the heap. So the aliens are not deserialized at all -> each
+    record is read where it lies, through a View (a FLYWEIGHT, ie. an object holding only the row number, which reads
+    the fields from the file when asked for them).
+
+    A catalogue holds either Aliens (written by write) or Immutable.ImmutableAliens (written by writeImmutable). The
+    file, all little endian;
+        HEADER      -> MAGIC, VERSION, the number of aliens, of strings, and of leg lengths, the capacity of the index,
+                       and the KIND of alien (ALIEN or IMMUTABLE_ALIEN).
+        STRINGS     -> the distinct colours (a STRING TABLE, so that each is stored once) -> the offset of each in the
+                       bytes below, then their UTF-8 bytes. Each alien refers to its colours by number.
+        RECORDS     -> RECORD bytes per alien, ie. FIXED WIDTH, so that alien i is at i * RECORD. For an Alien;
+                            hash            int     Alien.hashCode, so that it never has to be computed again.
+                            colour          short   the number of the colour in the string table, + 1 (0 for null).
+                            colourOfSpots   short   the same.
+                            numberOfEyes    int
+                            legStart        int     where the alien's leg lengths start in LEGS -> they run up to the
+                                                    next alien's legStart.
+                            flags           byte    FROM_ZORB, LEGS_NULL.
+                       and for an ImmutableAlien, which has a date rather than legs;
+                            hash            int     ImmutableAlien.hashCode.
+                            colour          short   as above.
+                            (unused)        short
+                            numberOfEyes    int     (it cannot be null, since ImmutableAlien.hashCode unboxes it.)
+                            dateOfDiscovery long    Date.getTime, ie. milliseconds since 1970.
+        LEGS        -> every Alien's leg lengths, one after another, as ints (none for ImmutableAliens).
+        INDEX       -> an open addressing hash table of the aliens, by hash -> each slot holds 1 + the number of an
+                       alien (0 for an empty slot), and a collision moves on to the next slot. It is at most half full.
+                       The slot is taken from Hash.mix(hash), since ImmutableAlien.hashCode is not mixed.
+    So find(alien) looks an alien up in the file itself -> it probes the index, skips the aliens whose stored hash
+    differs, and compares the fields of the rest with those of the alien (as equals does). The alien's colours are
+    turned into their numbers, and its hash computed, once before the probe, so that each row is compared with ints
+    and nothing is allocated.
+
+    Each section is mapped on its own, so each can be up to 2GB (a MappedByteBuffer is indexed by int), eg. about 100
+    million aliens.
+ */
+public final class AlienCatalogue {
+
+    static final int MAGIC = 0x414C4E43; // "ALNC"
+    static final int VERSION = 2;
+    static final int HEADER = 32;
+    static final int RECORD = 20;
+    static final int FROM_ZORB = 1;
+    static final int LEGS_NULL = 2;
+    // the kinds of alien a catalogue can hold.
+    static final int ALIEN = 0;
+    static final int IMMUTABLE_ALIEN = 1;
+
+    // the offsets of the fields in a record.
+    private static final int HASH = 0;
+    private static final int COLOUR = 4;
+    private static final int SPOTS = 6;
+    private static final int EYES = 8;
+    private static final int LEG_START = 12;
+    private static final int FLAGS = 16;
+    private static final int DATE = 12; // of an ImmutableAlien, in place of LEG_START and FLAGS.
+
+    private final int kind;
+    private final int size;
+    private final String[] strings;
+    private final Map<String, Integer> stringNumbers = new HashMap<>();
+    private final ByteBuffer records;
+    private final IntBuffer legs;
+    private final int legCount;
+    private final IntBuffer index;
+    private final int mask;
+
+    private AlienCatalogue(int kind, int size, String[] strings, ByteBuffer records, IntBuffer legs, int legCount, IntBuffer index){
+        this.kind = kind;
+        this.size = size;
+        this.strings = strings;
+        for(int i = 0; i < strings.length; i++) stringNumbers.put(strings[i], i);
+        this.records = records;
+        this.legs = legs;
+        this.legCount = legCount;
+        this.index = index;
+        this.mask = index.capacity() - 1;
+    }
+
+    // ---- writing ----
+
+    // writes the aliens to file, in the order of aliens (which gives their row numbers).
+    public static void write(Collection<? extends Alien> aliens, Path file) throws IOException {
+        List<String> strings = new ArrayList<>();
+        Map<String, Integer> numbers = new HashMap<>();
+        int legCount = 0;
+        for(Alien alien : aliens){
+            addString(strings, numbers, alien.getColour());
+            addString(strings, numbers, alien.getColourOfSpots());
+            int[] legLengths = alien.legLengths();
+            if(legLengths != null) legCount += legLengths.length;
+        }
+        int capacity = indexCapacity(aliens.size());
+
+        try(OutputStream stream = Files.newOutputStream(file);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16))){
+            writeHeader(out, ALIEN, aliens.size(), strings, legCount, capacity);
+
+            int[] hashes = new int[aliens.size()];
+            ByteBuffer buffer = ByteBuffer.allocate(RECORD).order(ByteOrder.LITTLE_ENDIAN);
+            int row = 0;
+            int legStart = 0;
+            for(Alien alien : aliens){
+                int[] legLengths = alien.legLengths();
+                hashes[row++] = alien.hashCode();
+                buffer.clear();
+                buffer.putInt(alien.hashCode())
+                        .putShort((short) number(numbers, alien.getColour()))
+                        .putShort((short) number(numbers, alien.getColourOfSpots()))
+                        .putInt(alien.getNumberOfEyes())
+                        .putInt(legStart)
+                        .put((byte) ((alien.isFromZorb() ? FROM_ZORB : 0) | (legLengths == null ? LEGS_NULL : 0)))
+                        .put(new byte[3]);
+                out.write(buffer.array());
+                if(legLengths != null) legStart += legLengths.length;
+            }
+
+            // DataOutputStream writes big endian, so the bytes are reversed.
+            for(Alien alien : aliens){
+                int[] legLengths = alien.legLengths();
+                if(legLengths != null) for(int length : legLengths) out.writeInt(Integer.reverseBytes(length));
+            }
+            writeIndex(out, hashes, capacity);
+        }
+    }
+
+    // writes the ImmutableAliens to file, in the order of aliens -> a separate method rather than an overload of write,
+    // since the two would have the same erasure.
+    public static void writeImmutable(Collection<? extends ImmutableAlien> aliens, Path file) throws IOException {
+        List<String> strings = new ArrayList<>();
+        Map<String, Integer> numbers = new HashMap<>();
+        for(ImmutableAlien alien : aliens) addString(strings, numbers, alien.getColour());
+        int capacity = indexCapacity(aliens.size());
+
+        try(OutputStream stream = Files.newOutputStream(file);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16))){
+            writeHeader(out, IMMUTABLE_ALIEN, aliens.size(), strings, 0, capacity);
+
+            int[] hashes = new int[aliens.size()];
+            ByteBuffer buffer = ByteBuffer.allocate(RECORD).order(ByteOrder.LITTLE_ENDIAN);
+            int row = 0;
+            for(ImmutableAlien alien : aliens){
+                hashes[row++] = alien.hashCode();
+                buffer.clear();
+                buffer.putInt(alien.hashCode())
+                        .putShort((short) number(numbers, alien.getColour()))
+                        .putShort((short) 0)
+                        .putInt(alien.getNumberOfEyes())
+                        .putLong(alien.getDateOfDiscovery().getTime());
+                out.write(buffer.array());
+            }
+            writeIndex(out, hashes, capacity);
+        }
+    }
+
+    private static void addString(List<String> strings, Map<String, Integer> numbers, String colour){
+        if(colour != null && numbers.putIfAbsent(colour, strings.size()) == null) strings.add(colour);
+        if(strings.size() > 0xFFFE) throw new IllegalArgumentException("More than 65,534 colours");
+    }
+
+    private static int number(Map<String, Integer> numbers, String colour){
+        return colour == null ? 0 : numbers.get(colour) + 1;
+    }
+
+    private static int indexCapacity(int size){
+        return Integer.highestOneBit(Math.max(1, size) * 2 - 1) * 2; // at most half full.
+    }
+
+    // the header, then the string table.
+    private static void writeHeader(DataOutputStream out, int kind, int size, List<String> strings, int legCount,
+                                    int capacity) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(strings.size()).putInt(legCount).putInt(capacity).putInt(kind);
+        out.write(buffer.array());
+
+        byte[][] encoded = new byte[strings.size()][];
+        buffer = ByteBuffer.allocate(4 * (strings.size() + 1)).order(ByteOrder.LITTLE_ENDIAN);
+        int offset = 0;
+        for(int i = 0; i < encoded.length; i++){
+            encoded[i] = strings.get(i).getBytes(StandardCharsets.UTF_8);
+            buffer.putInt(offset);
+            offset += encoded[i].length;
+        }
+        buffer.putInt(offset);
+        out.write(buffer.array());
+        for(byte[] bytes : encoded) out.write(bytes);
+    }
+
+    private static void writeIndex(DataOutputStream out, int[] hashes, int capacity) throws IOException {
+        int[] table = new int[capacity];
+        for(int i = 0; i < hashes.length; i++){
+            int slot = mix(hashes[i]) & (capacity - 1);
+            while(table[slot] != 0) slot = (slot + 1) & (capacity - 1);
+            table[slot] = i + 1;
+        }
+        ByteBuffer tableBytes = ByteBuffer.allocate(4 * capacity).order(ByteOrder.LITTLE_ENDIAN);
+        tableBytes.asIntBuffer().put(table);
+        out.write(tableBytes.array());
+    }
+
+    // ---- reading ----
+
+    // maps the file -> reads only the header and the string table. The file must not change while it is mapped.
+    public static AlienCatalogue open(Path file) throws IOException {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+            ByteBuffer header = map(channel, 0, HEADER);
+            if(header.getInt() != MAGIC) throw new IOException(file + " is not an alien catalogue");
+            int version = header.getInt();
+            if(version != VERSION) throw new IOException(file + " is version " + version + ", expected " + VERSION);
+            int size = header.getInt();
+            int stringCount = header.getInt();
+            int legCount = header.getInt();
+            int capacity = header.getInt();
+            int kind = header.getInt();
+            if(kind != ALIEN && kind != IMMUTABLE_ALIEN) throw new IOException(file + " holds an unknown kind of alien: " + kind);
+
+            long position = HEADER;
+            ByteBuffer offsets = map(channel, position, 4L * (stringCount + 1));
+            position += 4L * (stringCount + 1);
+            int stringBytes = offsets.getInt(4 * stringCount);
+            ByteBuffer bytes = map(channel, position, stringBytes);
+            position += stringBytes;
+            String[] strings = new String[stringCount];
+            for(int i = 0; i < stringCount; i++){
+                byte[] encoded = new byte[offsets.getInt(4 * (i + 1)) - offsets.getInt(4 * i)];
+                bytes.get(offsets.getInt(4 * i), encoded);
+                strings[i] = new String(encoded, StandardCharsets.UTF_8).intern();
+            }
+
+            ByteBuffer records = map(channel, position, (long) RECORD * size);
+            position += (long) RECORD * size;
+            IntBuffer legs = map(channel, position, 4L * legCount).asIntBuffer();
+            position += 4L * legCount;
+            IntBuffer index = map(channel, position, 4L * capacity).asIntBuffer();
+            if(position + 4L * capacity != channel.size()) throw new IOException(file + " is truncated or corrupt");
+            return new AlienCatalogue(kind, size, strings, records, legs, legCount, index);
+        }
+    }
+
+    // the mapping stays valid after the channel is closed, until the buffer is garbage collected.
+    private static ByteBuffer map(FileChannel channel, long position, long length) throws IOException {
+        if(length > Integer.MAX_VALUE) throw new IOException("A section of more than 2GB");
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        return buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public int size(){
+        return size;
+    }
+
+    // true if the catalogue holds ImmutableAliens (written by writeImmutable), false if it holds Aliens.
+    public boolean isImmutable(){
+        return kind == IMMUTABLE_ALIEN;
+    }
+
+    // a view of the alien in the given row -> nothing is read from the file until a field is asked for.
+    public View view(int row){
+        if(row < 0 || row >= size) throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        return new View(row);
+    }
+
+    // constructs the alien in the given row.
+    public Alien get(int row){
+        return view(row).toAlien();
+    }
+
+    public ImmutableAlien getImmutable(int row){
+        return view(row).toImmutableAlien();
+    }
+
+    // the row of an alien equal to alien, or -1 if there is none -> looked up in the index in the file.
+    public int find(Alien alien){
+        requireKind(ALIEN);
+        int colour = colourNumber(alien.getColour());
+        int spotsColour = colourNumber(alien.getColourOfSpots());
+        if(colour < 0 || spotsColour < 0) return -1; // a colour which no alien in the catalogue has.
+        int hash = alien.hashCode();
+        int eyes = alien.getNumberOfEyes();
+        boolean zorb = alien.isFromZorb();
+        int[] legLengths = alien.legLengths();
+        for(int slot = mix(hash) & mask; ; slot = (slot + 1) & mask){
+            int row = index.get(slot) - 1;
+            if(row < 0) return -1;
+            if(matches(row, hash, colour, spotsColour, eyes, zorb, legLengths)) return row;
+        }
+    }
+
+    public int find(ImmutableAlien alien){
+        requireKind(IMMUTABLE_ALIEN);
+        int colour = colourNumber(alien.getColour());
+        if(colour < 0) return -1;
+        int hash = alien.hashCode();
+        int eyes = alien.getNumberOfEyes();
+        long date = alien.getDateOfDiscovery().getTime();
+        for(int slot = mix(hash) & mask; ; slot = (slot + 1) & mask){
+            int row = index.get(slot) - 1;
+            if(row < 0) return -1;
+            if(matches(row, hash, colour, eyes, date)) return row;
+        }
+    }
+
+    // the rows of every alien equal to alien, in order.
+    public IntArrayList findAll(Alien alien){
+        requireKind(ALIEN);
+        IntArrayList rows = new IntArrayList();
+        int colour = colourNumber(alien.getColour());
+        int spotsColour = colourNumber(alien.getColourOfSpots());
+        if(colour < 0 || spotsColour < 0) return rows;
+        int hash = alien.hashCode();
+        int eyes = alien.getNumberOfEyes();
+        boolean zorb = alien.isFromZorb();
+        int[] legLengths = alien.legLengths();
+        for(int slot = mix(hash) & mask; ; slot = (slot + 1) & mask){
+            int row = index.get(slot) - 1;
+            if(row < 0) break;
+            if(matches(row, hash, colour, spotsColour, eyes, zorb, legLengths)) rows.add(row);
+        }
+        return sorted(rows);
+    }
+
+    public IntArrayList findAll(ImmutableAlien alien){
+        requireKind(IMMUTABLE_ALIEN);
+        IntArrayList rows = new IntArrayList();
+        int colour = colourNumber(alien.getColour());
+        if(colour < 0) return rows;
+        int hash = alien.hashCode();
+        int eyes = alien.getNumberOfEyes();
+        long date = alien.getDateOfDiscovery().getTime();
+        for(int slot = mix(hash) & mask; ; slot = (slot + 1) & mask){
+            int row = index.get(slot) - 1;
+            if(row < 0) break;
+            if(matches(row, hash, colour, eyes, date)) rows.add(row);
+        }
+        return sorted(rows);
+    }
+
+    // the probe finds equal aliens in the order they were added, unless it wrapped around the end of the table.
+    private static IntArrayList sorted(IntArrayList rows){
+        int[] sorted = rows.toArray();
+        Arrays.sort(sorted);
+        IntArrayList ordered = new IntArrayList(sorted.length);
+        for(int row : sorted) ordered.add(row);
+        return ordered;
+    }
+
+    // true if the alien in the given row equals alien, by the same rules as Alien.equals, read from the file.
+    public boolean equal(int row, Alien alien){
+        if(kind != ALIEN) return false;
+        int colour = colourNumber(alien.getColour());
+        int spotsColour = colourNumber(alien.getColourOfSpots());
+        return colour >= 0 && spotsColour >= 0 && matches(row, alien.hashCode(), colour, spotsColour,
+                alien.getNumberOfEyes(), alien.isFromZorb(), alien.legLengths());
+    }
+
+    // the same, by the rules of ImmutableAlien.equals.
+    public boolean equal(int row, ImmutableAlien alien){
+        if(kind != IMMUTABLE_ALIEN) return false;
+        int colour = colourNumber(alien.getColour());
+        return colour >= 0 && matches(row, alien.hashCode(), colour, alien.getNumberOfEyes(), alien.getDateOfDiscovery().getTime());
+    }
+
+    // the number colour is stored as (see RECORDS), or -1 if it is not in the string table -> get returns the Integer
+    // which stringNumbers holds, so nothing is allocated.
+    private int colourNumber(String colour){
+        if(colour == null) return 0;
+        Integer number = stringNumbers.get(colour);
+        return number == null ? -1 : number + 1;
+    }
+
+    // the Alien in the row against an alien's values -> the stored hash first, then the fields as ints.
+    private boolean matches(int row, int hash, int colour, int spotsColour, int eyes, boolean zorb, int[] legLengths){
+        int record = row * RECORD;
+        if(records.getInt(record + HASH) != hash || (records.getShort(record + COLOUR) & 0xFFFF) != colour
+                || (records.getShort(record + SPOTS) & 0xFFFF) != spotsColour || records.getInt(record + EYES) != eyes) return false;
+        int flags = records.get(record + FLAGS);
+        if(((flags & FROM_ZORB) != 0) != zorb) return false;
+        if((flags & LEGS_NULL) != 0) return legLengths == null;
+        if(legLengths == null) return false;
+        int start = records.getInt(record + LEG_START);
+        if(legEnd(row) - start != legLengths.length) return false;
+        for(int i = 0; i < legLengths.length; i++) if(legs.get(start + i) != legLengths[i]) return false;
+        return true;
+    }
+
+    // the ImmutableAlien in the row against an ImmutableAlien's values.
+    private boolean matches(int row, int hash, int colour, int eyes, long date){
+        int record = row * RECORD;
+        return records.getInt(record + HASH) == hash && (records.getShort(record + COLOUR) & 0xFFFF) == colour
+                && records.getInt(record + EYES) == eyes && records.getLong(record + DATE) == date;
+    }
+
+    private void requireKind(int expected){
+        if(kind != expected) throw new IllegalStateException("The catalogue holds " + (kind == ALIEN ? "Aliens" : "ImmutableAliens"));
+    }
+
+    private int hashAt(int row){
+        return records.getInt(row * RECORD + HASH);
+    }
+
+    private int legEnd(int row){
+        return row + 1 == size ? legCount : records.getInt((row + 1) * RECORD + LEG_START);
+    }
+
+    private String string(short number){
+        int i = number & 0xFFFF;
+        return i == 0 ? null : strings[i - 1];
+    }
+
+    // an alien in the catalogue, read from the file as its fields are asked for -> asking for a field which the
+    // catalogue's kind of alien does not have (eg. the legs of an ImmutableAlien) throws IllegalStateException.
+    public final class View {
+        private final int row;
+
+        private View(int row){
+            this.row = row;
+        }
+
+        public int row(){
+            return row;
+        }
+
+        public String getColour(){
+            return string(records.getShort(row * RECORD + COLOUR));
+        }
+
+        public String getColourOfSpots(){
+            requireKind(ALIEN);
+            return string(records.getShort(row * RECORD + SPOTS));
+        }
+
+        public int getNumberOfEyes(){
+            return records.getInt(row * RECORD + EYES);
+        }
+
+        public boolean isFromZorb(){
+            requireKind(ALIEN);
+            return (records.get(row * RECORD + FLAGS) & FROM_ZORB) != 0;
+        }
+
+        // -1 if legLengths is null.
+        public int getNumberOfLegs(){
+            requireKind(ALIEN);
+            if((records.get(row * RECORD + FLAGS) & LEGS_NULL) != 0) return -1;
+            return legEnd(row) - records.getInt(row * RECORD + LEG_START);
+        }
+
+        public int getLegLength(int leg){
+            int legs = getNumberOfLegs();
+            if(leg < 0 || leg >= legs) throw new IndexOutOfBoundsException("Leg " + leg + " of " + Math.max(legs, 0));
+            return AlienCatalogue.this.legs.get(records.getInt(row * RECORD + LEG_START) + leg);
+        }
+
+        // a new array, or null.
+        public int[] getLegLengths(){
+            int legs = getNumberOfLegs();
+            if(legs < 0) return null;
+            int[] legLengths = new int[legs];
+            AlienCatalogue.this.legs.get(records.getInt(row * RECORD + LEG_START), legLengths);
+            return legLengths;
+        }
+
+        // a new Date.
+        public Date getDateOfDiscovery(){
+            requireKind(IMMUTABLE_ALIEN);
+            return new Date(records.getLong(row * RECORD + DATE));
+        }
+
+        public Alien toAlien(){
+            return new Alien(getColour(), getColourOfSpots(), getNumberOfEyes(), isFromZorb(), getLegLengths());
+        }
+
+        public ImmutableAlien toImmutableAlien(){
+            return new ImmutableAlien(getDateOfDiscovery(), getColour(), getNumberOfEyes());
+        }
+
+        // true if alien equals the alien in this row (see AlienCatalogue.equal).
+        public boolean equalTo(Alien alien){
+            return equal(row, alien);
+        }
+
+        public boolean equalTo(ImmutableAlien alien){
+            return equal(row, alien);
+        }
+
+        // the hashCode of the alien in this row, as stored in the file.
+        @Override
+        public int hashCode(){
+            return hashAt(row);
+        }
+
+        // a view equals another view of an equal alien (in this catalogue or another).
+        @Override
+        public boolean equals(Object object){
+            if(this == object) return true;
+            if(!(object instanceof View)) return false;
+            View view = (View) object;
+            if(hashCode() != view.hashCode() || isImmutable() != view.catalogue().isImmutable()) return false;
+            return isImmutable() ? equal(row, view.toImmutableAlien()) : equal(row, view.toAlien());
+        }
+
+        private AlienCatalogue catalogue(){
+            return AlienCatalogue.this;
+        }
+
+        @Override
+        public String toString(){
+            if(isImmutable()){
+                return "ImmutableAlien " + row + " {dateOfDiscovery=" + getDateOfDiscovery() + ", colour=" + getColour()
+                        + ", numberOfEyes=" + getNumberOfEyes() + "}";
+            }
+            return "Alien " + row + " {colour=" + getColour() + ", colourOfSpots=" + getColourOfSpots() + ", numberOfEyes="
+                    + getNumberOfEyes() + ", fromZorb=" + isFromZorb() + ", legLengths=" + Arrays.toString(getLegLengths()) + "}";
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package Equals;
+
+import BigO.Benchmark;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/*
+    Compares loading a catalogue of aliens (generated by AlienHashBenchmark.generate) saved with ObjectOutputStream, as
+    an ArrayList<Alien>, with opening the same catalogue as an AlienCatalogue file. Each is loaded by a new JVM (as at
+    startup), which reports;
+        file            -> the size of the file.
+        load            -> the time until the catalogue can be used -> ObjectInputStream.readObject, or
+                           AlienCatalogue.open.
+        index           -> the time to build a HashMap from each alien to its row, so that the deserialized
+                           catalogue can be searched (AlienCatalogue's index is already in the file).
+        heap            -> the heap in use after a GC, once loaded and indexed.
+        lookup          -> finding the row of a newly constructed alien, with the HashMap or AlienCatalogue.find.
+        scan            -> counting the aliens of one colour, over the list or over views of the catalogue.
+        RSS             -> the memory of the whole process (VmRSS in /proc/self/status) once loaded and indexed, after
+                           the lookups, and after the scans -> a mapped file only counts once its pages have been read
+                           (the lookups read pages of the index and records, the scans read all of the records), and
+                           those pages belong to the operating system's file cache, so are not copied for each process
+                           which maps the file.
+    Both files are in the operating system's file cache when they are loaded (each is written just before), so the
+    load times are of the CPU work, not of the disk.
+
+    Usage: java Equals.AlienCatalogueBenchmark [number of aliens]   (default 2,000,000)
+ */
+public class AlienCatalogueBenchmark {
+
+    static final int PROBES = 1 << 12;
+    static final String[] ROWS = {"file", "load", "index", "heap", "lookup", "scan", "RSS, loaded", "RSS, after lookups",
+            "RSS, after scans"};
+
+    public static void main(String[] args) throws IOException, InterruptedException, ClassNotFoundException {
+        if(args.length == 3 && args[0].equals("--child")){
+            child(args[1], Path.of(args[2]));
+            return;
+        }
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        List<Alien> aliens = new ArrayList<>(count);
+        for(AlienHashBenchmark.Record record : AlienHashBenchmark.generate(count, new Random(42))) aliens.add(record.newAlien());
+
+        Path serialized = Files.createTempFile("aliens", ".ser");
+        Path catalogue = Files.createTempFile("aliens", ".cat");
+        try {
+            long start = System.nanoTime();
+            try(ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(serialized), 1 << 16))){
+                out.writeObject(aliens);
+            }
+            long serializedNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            AlienCatalogue.write(aliens, catalogue);
+            long catalogueNanos = System.nanoTime() - start;
+            aliens = null;
+
+            System.out.printf("%,d aliens%n%n", count);
+            System.out.println(String.format("%-22s%-24s%-24s", "Operation", "ObjectInputStream", "AlienCatalogue").trim());
+            System.out.println(String.format("%-22s%-24s%-24s", "write", Benchmark.formatNanos(serializedNanos),
+                    Benchmark.formatNanos(catalogueNanos)).trim());
+            Map<String, String> objectStream = runChild("serialized", serialized);
+            Map<String, String> mapped = runChild("catalogue", catalogue);
+            for(String row : ROWS){
+                System.out.println(String.format("%-22s%-24s%-24s", row, objectStream.getOrDefault(row, "failed"),
+                        mapped.getOrDefault(row, "failed")).trim());
+            }
+        } finally {
+            Files.deleteIfExists(serialized);
+            Files.deleteIfExists(catalogue);
+        }
+    }
+
+    static Map<String, String> runChild(String format, Path file) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        for(String property : new String[]{"bigo.warmupMillis", "bigo.measureMillis"}){
+            if(System.getProperty(property) != null) command.add("-D" + property + "=" + System.getProperty(property));
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(AlienCatalogueBenchmark.class.getName());
+        command.add("--child");
+        command.add(format);
+        command.add(file.toString());
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        Map<String, String> results = new LinkedHashMap<>();
+        try(BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))){
+            String line;
+            while((line = reader.readLine()) != null){
+                int tab = line.indexOf('\t');
+                if(tab > 0) results.put(line.substring(0, tab), line.substring(tab + 1));
+                else System.out.println(line); // an error from the child.
+            }
+        }
+        process.waitFor();
+        return results;
+    }
+
+    // in the child JVM -> prints "row<tab>value" for each of ROWS.
+    @SuppressWarnings("unchecked")
+    static void child(String format, Path file) throws IOException, ClassNotFoundException {
+        print("file", String.format("%.1fMB", Files.size(file) / 1e6));
+        Random random = new Random(7);
+        Alien[] probes = new Alien[PROBES];
+        if(format.equals("serialized")){
+            long start = System.nanoTime();
+            List<Alien> aliens;
+            try(ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))){
+                aliens = (List<Alien>) in.readObject();
+            }
+            print("load", Benchmark.formatNanos(System.nanoTime() - start));
+            start = System.nanoTime();
+            Map<Alien, Integer> rows = new HashMap<>();
+            for(int row = 0; row < aliens.size(); row++) rows.putIfAbsent(aliens.get(row), row);
+            print("index", Benchmark.formatNanos(System.nanoTime() - start));
+            print("heap", String.format("%.1fMB", Benchmark.usedHeapAfterGc() / 1e6));
+            print("RSS, loaded", rss());
+            for(int i = 0; i < PROBES; i++) probes[i] = copy(aliens.get(random.nextInt(aliens.size())));
+            print("lookup", Benchmark.measure(i -> rows.get(probes[i & (PROBES - 1)])).toString());
+            print("RSS, after lookups", rss());
+            String colour = aliens.get(0).getColour();
+            print("scan", Benchmark.measure(i -> {
+                int found = 0;
+                for(Alien alien : aliens) if(colour.equals(alien.getColour())) found++;
+                return found;
+            }, 1).toString());
+            print("RSS, after scans", rss());
+        } else {
+            long start = System.nanoTime();
+            AlienCatalogue catalogue = AlienCatalogue.open(file);
+            print("load", Benchmark.formatNanos(System.nanoTime() - start));
+            print("index", "-");
+            print("heap", String.format("%.1fMB", Benchmark.usedHeapAfterGc() / 1e6));
+            print("RSS, loaded", rss());
+            for(int i = 0; i < PROBES; i++) probes[i] = catalogue.get(random.nextInt(catalogue.size()));
+            print("lookup", Benchmark.measure(i -> catalogue.find(probes[i & (PROBES - 1)])).toString());
+            print("RSS, after lookups", rss());
+            String colour = catalogue.view(0).getColour();
+            print("scan", Benchmark.measure(i -> {
+                int found = 0;
+                for(int row = 0; row < catalogue.size(); row++) if(colour.equals(catalogue.view(row).getColour())) found++;
+                return found;
+            }, 1).toString());
+            print("RSS, after scans", rss());
+        }
+    }
+
+    // a new alien equal to alien, so that a lookup cannot succeed by identity.
+    static Alien copy(Alien alien){
+        return new Alien(alien.getColour(), alien.getColourOfSpots(), alien.getNumberOfEyes(), alien.isFromZorb(), alien.getLegLengths());
+    }
+
+    // the resident set size of this process.
+    static String rss() throws IOException {
+        for(String line : Files.readAllLines(Path.of("/proc/self/status"))){
+            // eg. "VmRSS:	  123456 kB"
+            if(line.startsWith("VmRSS:")) return String.format("%.1fMB", Long.parseLong(line.replaceAll("[^0-9]", "")) / 1e3);
+        }
+        return "-";
+    }
+
+    static void print(String row, String value){
+        System.out.println(row + "\t" + value);
+    }
+}
@@ -0,0 +1,170 @@
+package Equals;
+
+import BigO.Benchmark;
+import DataStructures.IntHashSet;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/*
+    Measures the quality of Alien.hashCode on a large catalogue of generated aliens, comparing three hash functions;
+        legacy              -> the original hashCode (17 as the multiplier, fromZorb ? 0 : 7, and legLengths.hashCode(),
+                               which is the identity hash of the array object rather than a hash of its contents).
+        legacy, content     -> the same formula with Arrays.hashCode(legLengths), to separate the two problems.
+        Alien.hashCode      -> the current content based, mixed hashCode.
+    For each it reports;
+        distinct hashes     -> how many different hashCodes the distinct aliens have (ideally one each).
+        bucket collisions   -> the % of distinct aliens that share a HashMap bucket with another, for a table sized as
+                               HashMap would size it. "ideal" is the rate expected from a perfectly random hash.
+        longest chain       -> the most aliens in any one bucket.
+        lookup              -> HashMap.get with a NEWLY CONSTRUCTED alien equal to one in the map (which is how a
+                               dedup map is used), giving the time per lookup and the % of lookups that found it.
+                               With the legacy hash equal aliens have different hashCodes, so the lookups miss and a
+                               dedup map would keep growing.
+
+    Usage: java Equals.AlienHashBenchmark [number of aliens]   (default 2,000,000)
+ */
+public class AlienHashBenchmark {
+
+    static final String[] COLOURS = {"purple", "red", "green", "blue", "orange", "yellow", "pink", "black", "white",
+            "grey", "silver", "gold"};
+    static final int PROBES = 1 << 12;
+
+    // the parameters used to construct each alien, kept so that equal copies (and the legacy hash) can be made.
+    static final class Record {
+        final String colour;
+        final String colourOfSpots;
+        final int numberOfEyes;
+        final boolean fromZorb;
+        final int[] legLengths;
+
+        Record(String colour, String colourOfSpots, int numberOfEyes, boolean fromZorb, int[] legLengths){
+            this.colour = colour;
+            this.colourOfSpots = colourOfSpots;
+            this.numberOfEyes = numberOfEyes;
+            this.fromZorb = fromZorb;
+            this.legLengths = legLengths;
+        }
+
+        Alien newAlien(){
+            return new Alien(colour, colourOfSpots, numberOfEyes, fromZorb, legLengths);
+        }
+
+        // the original Alien.hashCode -> the array is the one this alien was built from, so the identity hash differs
+        // for every alien, even when the contents are equal.
+        int legacyHash(boolean hashLegContents){
+            int hash = 17;
+            int result = 3;
+            result = hash * result + (colour == null ? 0 : colour.hashCode());
+            result = hash * result + (colourOfSpots == null ? 0 : colourOfSpots.hashCode());
+            result = hash * result + numberOfEyes;
+            result = hash * result + (fromZorb ? 0 : 7);
+            int legs = hashLegContents ? Arrays.hashCode(legLengths) : System.identityHashCode(legLengths);
+            result = hash * result + (legLengths == null ? 0 : legs);
+            return result;
+        }
+    }
+
+    // a HashMap key which uses a given hashCode but Alien.equals -> to measure lookups with the legacy hash.
+    static final class Key {
+        final Alien alien;
+        final int hash;
+
+        Key(Alien alien, int hash){
+            this.alien = alien;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object object){
+            return object instanceof Key && alien.equals(((Key) object).alien);
+        }
+
+        @Override
+        public int hashCode(){
+            return hash;
+        }
+    }
+
+    public static void main(String[] args){
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        Record[] records = generate(count, new Random(42));
+
+        // the distinct varieties, found with Alien.equals (and the new hashCode, which is consistent with it).
+        Map<Alien, Record> distinct = new HashMap<>();
+        for(Record record : records) distinct.putIfAbsent(record.newAlien(), record);
+        Record[] varieties = distinct.values().toArray(new Record[0]);
+        System.out.printf("%,d aliens, %,d distinct varieties%n%n", count, varieties.length);
+
+        System.out.println(String.format("%-20s%-18s%-28s%-16s%-20s", "hashCode", "distinct hashes",
+                "bucket collisions (ideal)", "longest chain", "lookup").trim());
+        report("legacy", varieties, 0);
+        report("legacy, content", varieties, 1);
+        report("Alien.hashCode", varieties, 2);
+    }
+
+    static void report(String name, Record[] varieties, int function){
+        int[] hashes = new int[varieties.length];
+        for(int i = 0; i < varieties.length; i++) hashes[i] = hash(varieties[i], varieties[i].newAlien(), function);
+
+        IntHashSet distinctHashes = new IntHashSet(hashes.length);
+        for(int hash : hashes) distinctHashes.add(hash);
+
+        // bucket index as HashMap computes it -> spread the high bits into the low, then mask to the table size.
+        int capacity = Integer.highestOneBit(Math.max(1, (int) (hashes.length / 0.75f)) * 2 - 1);
+        int[] buckets = new int[capacity];
+        int occupied = 0;
+        int longest = 0;
+        for(int hash : hashes){
+            int bucket = (hash ^ (hash >>> 16)) & (capacity - 1);
+            if(buckets[bucket]++ == 0) occupied++;
+            longest = Math.max(longest, buckets[bucket]);
+        }
+        double collisions = 100.0 * (hashes.length - occupied) / hashes.length;
+        double idealOccupied = capacity * (1 - Math.pow(1 - 1.0 / capacity, hashes.length));
+        double idealCollisions = 100.0 * (hashes.length - idealOccupied) / hashes.length;
+
+        // the map holds one alien per variety, and is probed with newly constructed equal aliens.
+        Map<Key, Record> map = new HashMap<>();
+        for(int i = 0; i < varieties.length; i++) map.put(new Key(varieties[i].newAlien(), hashes[i]), varieties[i]);
+        Random random = new Random(7);
+        Key[] probes = new Key[PROBES];
+        for(int i = 0; i < PROBES; i++){
+            Record record = varieties[random.nextInt(varieties.length)];
+            Alien copy = record.newAlien();
+            probes[i] = new Key(copy, hash(new Record(record.colour, record.colourOfSpots, record.numberOfEyes,
+                    record.fromZorb, record.legLengths.clone()), copy, function));
+        }
+        int hits = 0;
+        for(Key probe : probes) if(map.containsKey(probe)) hits++;
+        Benchmark.Result lookup = Benchmark.measure(i -> map.get(probes[i & (PROBES - 1)]) == null ? 0 : 1);
+
+        System.out.println(String.format("%-20s%-18s%-28s%-16s%-20s", name, String.format("%,d", distinctHashes.size()),
+                String.format("%.2f%% (%.2f%%)", collisions, idealCollisions), longest,
+                String.format("%s, %.0f%% found", Benchmark.formatNanos(lookup.nanosPerOp()), 100.0 * hits / PROBES)).trim());
+    }
+
+    static int hash(Record record, Alien alien, int function){
+        switch(function){
+            case 0: return record.legacyHash(false);
+            case 1: return record.legacyHash(true);
+            default: return alien.hashCode();
+        }
+    }
+
+    // aliens drawn from a realistic catalogue -> a few colours, mostly unspotted, 1 to 12 eyes, and 2 to 6 legs of
+    // lengths 1 to 5, so there are many repeats of each variety.
+    static Record[] generate(int count, Random random){
+        Record[] records = new Record[count];
+        for(int i = 0; i < count; i++){
+            String colour = COLOURS[random.nextInt(COLOURS.length)];
+            String spots = random.nextInt(4) == 0 ? COLOURS[random.nextInt(COLOURS.length)] : null;
+            int[] legs = new int[2 + random.nextInt(5)];
+            for(int leg = 0; leg < legs.length; leg++) legs[leg] = 1 + random.nextInt(5);
+            records[i] = new Record(colour, spots, 1 + random.nextInt(12), random.nextBoolean(), legs);
+        }
+        return records;
+    }
+}
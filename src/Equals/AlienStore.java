@@ -0,0 +1,163 @@
+package Equals;
+
+import DataStructures.IntArrayList;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+    Stores aliens COLUMN BY COLUMN, off heap, rather than as an ArrayList of Alien objects.
+    On the heap each Alien costs an object header and five fields, plus a separate int[] (with its own header and length)
+    for legLengths -> about 80 bytes for an alien whose actual data would fit in a few bytes. Here each field is a column
+    (see PackedColumn) holding only as many bits per alien as its values need;
+        colour, colourOfSpots   -> DICTIONARY ENCODED, ie. each distinct String is stored once (on the heap, in the
+                                   dictionary) and the column holds its code. 0 is the code for null. With 12 colours,
+                                   each alien needs 4 bits per colour.
+        numberOfEyes            -> zigzag encoded and packed, eg. 1 to 12 eyes take 5 bits.
+        fromZorb                -> a bitset, ie. 1 bit each.
+        legLengths              -> all the leg lengths of all the aliens, one after another in one packed column, and
+                                   an OFFSETS column giving where each alien's legs start (alien i's legs are from
+                                   offsets[i] to offsets[i + 1]). A bitset marks the aliens whose legLengths is null.
+    The columns live in direct ByteBuffers, so the garbage collector never has to scan or move them, however many aliens
+    are stored -> a heap full of millions of small objects makes every full GC slower.
+
+    Queries scan the columns WITHOUT constructing Alien objects. findEqual first looks up the dictionary codes of the
+    alien's colours (if a colour is not in the dictionary, no stored alien can be equal to it), so the scan compares
+    small ints rather than Strings, and checks the cheapest columns first, as Alien.equals does.
+    Aliens are added, never removed or changed, as in a catalogue which is loaded and then queried.
+ */
+public final class AlienStore {
+
+    // the dictionary of colours (of both the aliens and their spots) -> code i is the String at index i.
+    private final List<String> colourNames = new ArrayList<>();
+    private final Map<String, Integer> colourCodes = new HashMap<>();
+
+    private final PackedColumn colours = new PackedColumn(1);
+    private final PackedColumn spots = new PackedColumn(1);
+    private final PackedColumn eyes = new PackedColumn(1);
+    private final PackedColumn fromZorb = new PackedColumn(1);
+    private final PackedColumn legsNull = new PackedColumn(1);
+    private final PackedColumn legOffsets = new PackedColumn(1);
+    private final PackedColumn legs = new PackedColumn(1);
+
+    public AlienStore(){
+        colourNames.add(null);
+        legOffsets.add(0);
+    }
+
+    // adds the alien as the next row, and returns its row number.
+    public int add(Alien alien){
+        colours.add(encode(alien.getColour()));
+        spots.add(encode(alien.getColourOfSpots()));
+        eyes.add(PackedColumn.zigzag(alien.getNumberOfEyes()));
+        fromZorb.add(alien.isFromZorb() ? 1 : 0);
+        int[] legLengths = alien.getLegLengths();
+        legsNull.add(legLengths == null ? 1 : 0);
+        if(legLengths != null) for(int length : legLengths) legs.add(PackedColumn.zigzag(length));
+        legOffsets.add(legs.size());
+        return colours.size() - 1;
+    }
+
+    public int size(){
+        return colours.size();
+    }
+
+    // constructs the alien in the given row -> only needed to hand an alien to code which needs the object.
+    public Alien get(int row){
+        int[] legLengths = null;
+        if(legsNull.get(row) == 0){
+            int start = legOffsets.get(row);
+            legLengths = new int[legOffsets.get(row + 1) - start];
+            for(int i = 0; i < legLengths.length; i++) legLengths[i] = PackedColumn.unzigzag(legs.get(start + i));
+        }
+        return new Alien(colourNames.get(colours.get(row)), colourNames.get(spots.get(row)),
+                PackedColumn.unzigzag(eyes.get(row)), fromZorb.get(row) == 1, legLengths);
+    }
+
+    // true if the alien in the given row equals alien, by the same rules as Alien.equals.
+    public boolean equal(int row, Alien alien){
+        Query query = new Query(alien);
+        return query.possible && query.matches(row);
+    }
+
+    // the rows of every stored alien equal to alien, in order.
+    public IntArrayList findEqual(Alien alien){
+        IntArrayList rows = new IntArrayList();
+        Query query = new Query(alien);
+        if(!query.possible) return rows;
+        for(int row = 0; row < size(); row++) if(query.matches(row)) rows.add(row);
+        return rows;
+    }
+
+    // the number of stored aliens equal to alien.
+    public int count(Alien alien){
+        Query query = new Query(alien);
+        if(!query.possible) return 0;
+        int count = 0;
+        for(int row = 0; row < size(); row++) if(query.matches(row)) count++;
+        return count;
+    }
+
+    // the rows of every stored alien of the given colour -> reads only the colour column.
+    public IntArrayList findColour(String colour){
+        IntArrayList rows = new IntArrayList();
+        Integer found = colour == null ? Integer.valueOf(0) : colourCodes.get(colour);
+        if(found == null) return rows;
+        int code = found;
+        for(int row = 0; row < size(); row++) if(colours.get(row) == code) rows.add(row);
+        return rows;
+    }
+
+    // the off heap memory used by the columns, in bytes (the dictionary is on the heap, but holds each colour once).
+    public long offHeapBytes(){
+        return colours.capacityBytes() + spots.capacityBytes() + eyes.capacityBytes() + fromZorb.capacityBytes()
+                + legsNull.capacityBytes() + legOffsets.capacityBytes() + legs.capacityBytes();
+    }
+
+    private int encode(String colour){
+        if(colour == null) return 0;
+        Integer code = colourCodes.get(colour);
+        if(code == null){
+            code = colourNames.size();
+            colourNames.add(colour);
+            colourCodes.put(colour, code);
+        }
+        return code;
+    }
+
+    // an alien translated into the encoded values of the columns, so that each row can be compared with ints.
+    private final class Query {
+        final boolean possible; // false if a colour is not in the dictionary, so that no row can match.
+        final int colour;
+        final int spotsColour;
+        final int eyesValue;
+        final int zorb;
+        final int[] legValues;
+
+        Query(Alien alien){
+            Integer colour = alien.getColour() == null ? Integer.valueOf(0) : colourCodes.get(alien.getColour());
+            Integer spotsColour = alien.getColourOfSpots() == null ? Integer.valueOf(0) : colourCodes.get(alien.getColourOfSpots());
+            this.possible = colour != null && spotsColour != null;
+            this.colour = colour == null ? -1 : colour;
+            this.spotsColour = spotsColour == null ? -1 : spotsColour;
+            this.eyesValue = PackedColumn.zigzag(alien.getNumberOfEyes());
+            this.zorb = alien.isFromZorb() ? 1 : 0;
+            int[] legLengths = alien.getLegLengths();
+            if(legLengths != null) for(int i = 0; i < legLengths.length; i++) legLengths[i] = PackedColumn.zigzag(legLengths[i]);
+            this.legValues = legLengths;
+        }
+
+        boolean matches(int row){
+            if(colours.get(row) != colour || spots.get(row) != spotsColour || eyes.get(row) != eyesValue
+                    || fromZorb.get(row) != zorb) return false;
+            if(legsNull.get(row) == 1) return legValues == null;
+            if(legValues == null) return false;
+            int start = legOffsets.get(row);
+            if(legOffsets.get(row + 1) - start != legValues.length) return false;
+            for(int i = 0; i < legValues.length; i++) if(legs.get(start + i) != legValues[i]) return false;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package Equals;
+
+import BigO.Benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/*
+    Compares an ArrayList<Alien> with an AlienStore holding the same catalogue (generated by AlienHashBenchmark.generate);
+        memory          -> the heap retained by the ArrayList and its aliens, and the off heap memory of the store's
+                           columns (plus the heap it retains, which is just the column objects and the dictionary).
+        findEqual       -> the rows of every alien equal to a given one -> Alien.equals on each element of the list,
+                           and AlienStore.findEqual on the columns.
+        findColour      -> the rows of every alien of a given colour -> getColour().equals on each element of the
+                           list, and AlienStore.findColour, which reads only the colour column.
+    Each scan is reported as its time and the number of aliens scanned per second.
+
+    Usage: java Equals.AlienStoreBenchmark [number of aliens]   (default 5,000,000)
+ */
+public class AlienStoreBenchmark {
+
+    public static void main(String[] args){
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        AlienHashBenchmark.Record[] records = AlienHashBenchmark.generate(count, new Random(42));
+
+        long before = Benchmark.usedHeapAfterGc();
+        List<Alien> list = new ArrayList<>();
+        for(AlienHashBenchmark.Record record : records) list.add(record.newAlien());
+        long listBytes = Benchmark.usedHeapAfterGc() - before;
+
+        before = Benchmark.usedHeapAfterGc();
+        AlienStore store = new AlienStore();
+        for(AlienHashBenchmark.Record record : records) store.add(record.newAlien());
+        long storeHeapBytes = Benchmark.usedHeapAfterGc() - before;
+        records = null;
+
+        System.out.printf("%,d aliens%n%n", count);
+        System.out.println("MEMORY");
+        System.out.printf("%-22s%.1fMB heap (%.1f bytes per alien)%n", "ArrayList<Alien>", listBytes / 1e6,
+                (double) listBytes / count);
+        System.out.printf("%-22s%.1fMB off heap + %.1fMB heap (%.1f bytes per alien)%n", "AlienStore",
+                store.offHeapBytes() / 1e6, storeHeapBytes / 1e6, (double) (store.offHeapBytes() + storeHeapBytes) / count);
+
+        Alien query = list.get(count / 2);
+        String colour = query.getColour();
+        System.out.println();
+        System.out.println(String.format("%-22s%-28s%-28s", "SCAN", "ArrayList<Alien>", "AlienStore").trim());
+        System.out.println(String.format("%-22s%-28s%-28s", "findEqual",
+                rate(Benchmark.measure(() -> i -> {
+                    int found = 0;
+                    for(Alien alien : list) if(alien.equals(query)) found++;
+                    return found;
+                }, 1), count),
+                rate(Benchmark.measure(() -> i -> store.findEqual(query).size(), 1), count)).trim());
+        System.out.println(String.format("%-22s%-28s%-28s", "findColour",
+                rate(Benchmark.measure(() -> i -> {
+                    int found = 0;
+                    for(Alien alien : list) if(colour.equals(alien.getColour())) found++;
+                    return found;
+                }, 1), count),
+                rate(Benchmark.measure(() -> i -> store.findColour(colour).size(), 1), count)).trim());
+        System.out.printf("%n(%,d equal aliens, %,d of colour %s found by both)%n", store.count(query),
+                store.findColour(colour).size(), colour);
+    }
+
+    static String rate(Benchmark.Result result, int count){
+        return String.format("%s (%.0fM/s)", Benchmark.formatNanos(result.nanosPerOp()), count / result.nanosPerOp() * 1e3);
+    }
+}
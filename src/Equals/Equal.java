@@ -14,26 +14,31 @@ package Equals;
     Ensure that an appropriate definition of equals is implemented if Objects are placed in java collections (Lists, Sets, Maps).
  */
 //To facilitate overriding equals, we can create an Equal class.
+//The methods are instrumented when -Dequals.metrics=true (see EqualsMetrics) -> otherwise the if is removed by the JIT.
 public class Equal {
 
     //handles a comparison of boolean fields
     static public boolean equal(boolean thisBoolean, boolean thatBoolean) {
+        if(EqualsMetrics.ENABLED) EqualsMetrics.equalCalled();
         return thisBoolean == thatBoolean;
     }
 
     //handles a comparison of long, int, short, and byte fields -> note that int, short, and byte are handled by implicit conversion.
     static public boolean equal(long thisNum, long thatNum) {
+        if(EqualsMetrics.ENABLED) EqualsMetrics.equalCalled();
         return thisNum == thatNum;
     }
 
     //handles a comparison of char fields
     static public boolean equal(char thisChar, char thatChar) {
+        if(EqualsMetrics.ENABLED) EqualsMetrics.equalCalled();
         return thisChar == thatChar;
     }
 
     //handles a comparison of double fields
     //Double.doubleToLongBits(double val) returns a representation of the specified floating-point value according to the IEEE 754 floating-point "double format" bit layout (a long).
     static public boolean equal(double thisDouble, double thatDouble) {
+        if(EqualsMetrics.ENABLED) EqualsMetrics.equalCalled();
         return Double.doubleToLongBits(thisDouble) == Double.doubleToLongBits(thatDouble);
     }
 
@@ -41,6 +46,7 @@ public class Equal {
     //uses the ternary operator -> if thisObj == null then return thatObj == null. If thisObj != null then return thisObj.equals(thatObj)
     //will therefore return true if both objects == null.
     static public boolean equal(Object thisObj, Object thatObj) {
+        if(EqualsMetrics.ENABLED) EqualsMetrics.equalCalled();
         return thisObj == null ? thatObj == null : thisObj.equals(thatObj);
     }
 
@@ -0,0 +1,280 @@
+package Equals;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.Recording;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+    Optional instrumentation of equals and hashCode, to find out whether slow HashMap operations come from expensive
+    equals calls or colliding hashCodes. Turned on with -Dequals.metrics=true. It records, for each class;
+        * how many equals calls returned at once (the same object, or not the same class), and how many compared the
+          fields -> of those, how many were equal, which field was the first to differ, and the mean time taken.
+        * how many hashCode calls returned the cached hashCode, and how many had to compute it, and the mean time taken.
+        * (for Equal.equal) the number of calls.
+    The counts are LongAdders rather than AtomicLongs -> an AtomicLong is one variable which every thread updates, so
+    with many threads they queue for it (and its cache line moves from core to core on every increment). A LongAdder
+    spreads the count over several cells when threads collide, and only adds them up when it is read.
+
+    The counts are available from snapshot(), and in a Java Flight Recording as the Equals.Counters event, once a
+    second. There are also events for each field comparison (Equals.Compare) and each hashCode computation
+    (Equals.HashCode) with their durations, which are off by default since there would be millions of them -> turn them
+    on in the recording's settings, eg. jfr configure +Equals.Compare#enabled=true.
+
+    WHEN IT IS OFF IT COSTS NOTHING -> each hook is written as if(EqualsMetrics.ENABLED) ..., and ENABLED is a static
+    final field, which the JIT treats as a constant once the class is initialized, so it removes the if and everything
+    in it from the compiled code (see EqualsMetricsBenchmark). Each hook is a single call, so that the method it is in
+    stays small enough to be inlined -> the JIT decides that on the size of the bytecode, dead code included.
+
+    WHEN IT IS ON IT COSTS LITTLE -> a class creates its Counters once, into a static final field (see Alien), so a hook
+    does not have to look them up, and the first differing field is counted by its index into an array of LongAdders.
+    Reading the clock (System.nanoTime, 20-40ns) twice would cost more than the equals it measures, so only one call in
+    SAMPLE is timed, and the mean time is reported from those -> unless the Compare or HashCode events are being
+    recorded, in which case every call is timed.
+ */
+public final class EqualsMetrics {
+
+    static public final boolean ENABLED = Boolean.getBoolean("equals.metrics");
+
+    // one call in SAMPLE (a power of 2) is timed, when the per-call events are not recorded.
+    static final int SAMPLE = 64;
+    // returned by start for a call which is not timed.
+    static final long NOT_TIMED = Long.MIN_VALUE;
+
+    private static final LongAdder EQUAL_CALLS = new LongAdder();
+    private static final List<Counters> ALL = new CopyOnWriteArrayList<>();
+    // whether the Compare and HashCode events are enabled in a running recording -> checked when a recording starts or
+    // stops, and once a second (when the Counters events are emitted), since asking the event on every call costs more.
+    private static volatile boolean recordingCompares;
+    private static volatile boolean recordingHashCodes;
+
+    static {
+        if(ENABLED){
+            FlightRecorder.addPeriodicEvent(CountersEvent.class, EqualsMetrics::emitCounters);
+            FlightRecorder.addListener(new FlightRecorderListener() {
+                @Override
+                public void recordingStateChanged(Recording recording){
+                    checkRecording();
+                }
+            });
+            checkRecording();
+        }
+    }
+
+    private EqualsMetrics(){
+    }
+
+    // the counts for one class.
+    public static final class Counters {
+        final String type;
+        final String[] fields;
+        final LongAdder identical = new LongAdder();
+        final LongAdder otherType = new LongAdder();
+        final LongAdder compared = new LongAdder();
+        final LongAdder equal = new LongAdder();
+        final LongAdder[] mismatches; // by the index of the field in fields.
+        final LongAdder timedCompares = new LongAdder();
+        final LongAdder compareNanos = new LongAdder();
+        final LongAdder hashCached = new LongAdder();
+        final LongAdder hashComputed = new LongAdder();
+        final LongAdder timedHashes = new LongAdder();
+        final LongAdder hashNanos = new LongAdder();
+
+        private Counters(String type, String[] fields){
+            this.type = type;
+            this.fields = fields.clone();
+            this.mismatches = new LongAdder[fields.length];
+            for(int i = 0; i < fields.length; i++) mismatches[i] = new LongAdder();
+        }
+    }
+
+    // the counts for type, whose equals compares fields in this order -> call it once, when ENABLED, and keep the result
+    // in a static final field of the class.
+    static public Counters counters(Class<?> type, String... fields){
+        Counters counters = new Counters(type.getSimpleName(), fields);
+        ALL.add(counters);
+        return counters;
+    }
+
+    // the time, to pass to the methods below which measure a duration -> or NOT_TIMED, for all but one call in SAMPLE
+    // (unless the call's event is recorded).
+    private static long start(boolean recorded){
+        return recorded || (ThreadLocalRandom.current().nextInt() & (SAMPLE - 1)) == 0 ? System.nanoTime() : NOT_TIMED;
+    }
+
+    static public void equalCalled(){
+        EQUAL_CALLS.increment();
+    }
+
+    // equals returned true at once, since it was given the same object.
+    static public void equalsIdentical(Counters counters){
+        counters.identical.increment();
+    }
+
+    // equals returned false at once, since it was given null or an object of another class.
+    static public void equalsOtherType(Counters counters){
+        counters.otherType.increment();
+    }
+
+    static public long startCompare(){
+        return start(recordingCompares);
+    }
+
+    // equals compared the fields, from start, and mismatch is the index of the first field which differed (or -1 if
+    // none did).
+    static public void equalsCompared(Counters counters, long start, int mismatch){
+        counters.compared.increment();
+        if(mismatch < 0) counters.equal.increment();
+        else counters.mismatches[mismatch].increment();
+        if(start == NOT_TIMED) return;
+        long nanos = System.nanoTime() - start;
+        counters.timedCompares.increment();
+        counters.compareNanos.add(nanos);
+        if(recordingCompares){
+            CompareEvent event = new CompareEvent();
+            if(event.isEnabled()){
+                event.type = counters.type;
+                event.equal = mismatch < 0;
+                event.mismatch = mismatch < 0 ? null : counters.fields[mismatch];
+                event.compareTime = nanos;
+                event.commit();
+            }
+        }
+    }
+
+    static public void hashCodeCached(Counters counters){
+        counters.hashCached.increment();
+    }
+
+    static public long startHashCode(){
+        return start(recordingHashCodes);
+    }
+
+    // hashCode computed the hashCode (rather than returning the cached one), from start.
+    static public void hashCodeComputed(Counters counters, long start){
+        counters.hashComputed.increment();
+        if(start == NOT_TIMED) return;
+        long nanos = System.nanoTime() - start;
+        counters.timedHashes.increment();
+        counters.hashNanos.add(nanos);
+        if(recordingHashCodes){
+            HashCodeEvent event = new HashCodeEvent();
+            if(event.isEnabled()){
+                event.type = counters.type;
+                event.computeTime = nanos;
+                event.commit();
+            }
+        }
+    }
+
+    // the counts so far, by name, eg. "Alien.hashCode cached" -> the times are the means of the timed calls, in ns.
+    static public Map<String, Long> snapshot(){
+        Map<String, Long> snapshot = new LinkedHashMap<>();
+        snapshot.put("Equal.equal calls", EQUAL_CALLS.sum());
+        for(Counters counters : ALL){
+            String equals = counters.type + ".equals ";
+            snapshot.put(equals + "identical", counters.identical.sum());
+            snapshot.put(equals + "other type", counters.otherType.sum());
+            snapshot.put(equals + "compared", counters.compared.sum());
+            snapshot.put(equals + "equal", counters.equal.sum());
+            for(int i = 0; i < counters.fields.length; i++){
+                long count = counters.mismatches[i].sum();
+                if(count > 0) snapshot.put(equals + "first differed at " + counters.fields[i], count);
+            }
+            snapshot.put(equals + "mean compare time", mean(counters.compareNanos, counters.timedCompares));
+            String hashCode = counters.type + ".hashCode ";
+            snapshot.put(hashCode + "cached", counters.hashCached.sum());
+            snapshot.put(hashCode + "computed", counters.hashComputed.sum());
+            snapshot.put(hashCode + "mean compute time", mean(counters.hashNanos, counters.timedHashes));
+        }
+        return snapshot;
+    }
+
+    private static long mean(LongAdder nanos, LongAdder calls){
+        long count = calls.sum();
+        return count == 0 ? 0 : nanos.sum() / count;
+    }
+
+    private static void checkRecording(){
+        recordingCompares = new CompareEvent().isEnabled();
+        recordingHashCodes = new HashCodeEvent().isEnabled();
+    }
+
+    private static void emitCounters(){
+        checkRecording();
+        for(Counters counters : ALL){
+            CountersEvent event = new CountersEvent();
+            event.type = counters.type;
+            event.equalCalls = EQUAL_CALLS.sum();
+            event.identical = counters.identical.sum();
+            event.otherType = counters.otherType.sum();
+            event.compared = counters.compared.sum();
+            event.equal = counters.equal.sum();
+            event.meanCompareTime = mean(counters.compareNanos, counters.timedCompares);
+            event.hashCached = counters.hashCached.sum();
+            event.hashComputed = counters.hashComputed.sum();
+            event.meanHashComputeTime = mean(counters.hashNanos, counters.timedHashes);
+            event.commit();
+        }
+    }
+
+    // ---- the Java Flight Recorder events ----
+
+    @Name("Equals.Counters")
+    @Label("Equals Counters")
+    @Category("Equals")
+    @Description("The equals and hashCode counts of a class so far")
+    @Period("1 s")
+    @StackTrace(false)
+    static final class CountersEvent extends Event {
+        @Label("Class") String type;
+        @Label("Equal.equal Calls") long equalCalls;
+        @Label("Identical") long identical;
+        @Label("Other Type") long otherType;
+        @Label("Compared") long compared;
+        @Label("Equal") long equal;
+        @Label("Mean Compare Time") @Timespan long meanCompareTime;
+        @Label("Hash Cached") long hashCached;
+        @Label("Hash Computed") long hashComputed;
+        @Label("Mean Hash Compute Time") @Timespan long meanHashComputeTime;
+    }
+
+    @Name("Equals.Compare")
+    @Label("Equals Compare")
+    @Category("Equals")
+    @Description("An equals call which compared the fields")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class CompareEvent extends Event {
+        @Label("Class") String type;
+        @Label("Equal") boolean equal;
+        @Label("First Differing Field") String mismatch;
+        @Label("Compare Time") @Timespan long compareTime;
+    }
+
+    @Name("Equals.HashCode")
+    @Label("HashCode")
+    @Category("Equals")
+    @Description("A hashCode call which computed the hashCode")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class HashCodeEvent extends Event {
+        @Label("Class") String type;
+        @Label("Compute Time") @Timespan long computeTime;
+    }
+}
@@ -0,0 +1,218 @@
+package Equals;
+
+import BigO.Benchmark;
+import Immutable.ImmutableAlien;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static Equals.Equal.equal;
+import static Equals.Hash.MULTIPLIER;
+import static Equals.Hash.hash;
+import static Equals.Hash.mix;
+
+/*
+    Shows that the instrumentation of EqualsMetrics costs nothing when it is off, and what it costs when it is on.
+    ENABLED is read once, when the JVM starts, so each setting is run in its own child JVM (which also keeps the call
+    sites of one from seeing the classes of another);
+        uninstrumented  -> PlainAlien below, an exact copy of Alien without the hooks.
+        off             -> Alien, without -Dequals.metrics.
+        on              -> Alien, with -Dequals.metrics=true.
+        on, recording   -> the same, with a Java Flight Recording running (-XX:StartFlightRecording).
+    The operations are equals between equal aliens (every field compared), equals between random aliens (which
+    usually differ at the first field), a cached hashCode, HashMap.get with a newly constructed alien (which computes
+    its hashCode, then calls equals), and ImmutableAlien.hashCode. Off should match uninstrumented to within the noise.
+    Each setting is run in FORKS JVMs, and the table shows the median -> the JIT can compile the same code differently
+    from one run to the next, which alone can move a time by 10-20%.
+    The counts recorded by the first "on" JVM are printed after the table.
+
+    Usage: java Equals.EqualsMetricsBenchmark
+ */
+public class EqualsMetricsBenchmark {
+
+    static final int ALIENS = 1 << 12;
+    static final int FORKS = 3;
+    static final String[] OPERATIONS = {"equals, equal", "equals, random", "hashCode, cached", "HashMap.get, new alien",
+            "ImmutableAlien.hashCode"};
+
+    // Alien without the hooks -> the same fields, with the same modifiers, and the same methods.
+    static class PlainAlien implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String colour;
+        private final String colourOfSpots;
+        private final int numberOfEyes;
+        private final boolean fromZorb;
+        private final int[] legLengths;
+        private transient volatile int hashCode;
+        private transient boolean hashIsZero;
+
+        PlainAlien(String colour, String colourOfSpots, int numberOfEyes, boolean fromZorb, int[] legLengths){
+            this.colour = colour;
+            this.colourOfSpots = colourOfSpots;
+            this.numberOfEyes = numberOfEyes;
+            this.fromZorb = fromZorb;
+            this.legLengths = legLengths == null ? null : legLengths.clone();
+        }
+
+        @Override
+        public boolean equals(Object object){
+            if(this == object) return true;
+            if(!(object instanceof PlainAlien)) return false;
+            PlainAlien alien = (PlainAlien) object;
+            return equal(this.colour, alien.colour) && equal(this.colourOfSpots, alien.colourOfSpots) && equal(this.numberOfEyes, alien.numberOfEyes) &&
+                    equal(this.fromZorb, alien.fromZorb) && Arrays.equals(this.legLengths, alien.legLengths);
+        }
+
+        @Override
+        public int hashCode(){
+            int cached = hashCode;
+            if(cached != 0 || hashIsZero) return cached;
+            return computeHashCode();
+        }
+
+        private int computeHashCode(){
+            int result = 17;
+            result = MULTIPLIER * result + hash(colour);
+            result = MULTIPLIER * result + hash(colourOfSpots);
+            result = MULTIPLIER * result + hash(numberOfEyes);
+            result = MULTIPLIER * result + hash(fromZorb);
+            result = MULTIPLIER * result + hash(legLengths);
+            result = mix(result);
+            if(result == 0) hashIsZero = true;
+            else hashCode = result;
+            return result;
+        }
+    }
+
+    interface Factory<T> {
+        T newAlien(AlienHashBenchmark.Record record);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if(args.length == 2 && args[0].equals("--child")){
+            child(args[1].equals("plain"));
+            return;
+        }
+        String[] settings = {"uninstrumented", "off", "on", "on, recording"};
+        Map<String, Map<String, String>> results = new LinkedHashMap<>();
+        List<String> counts = new ArrayList<>();
+        for(String setting : settings){
+            List<String> options = new ArrayList<>();
+            if(setting.startsWith("on")) options.add("-Dequals.metrics=true");
+            File recording = File.createTempFile("equals", ".jfr");
+            if(setting.equals("on, recording")) options.add("-XX:StartFlightRecording:filename=" + recording);
+            try {
+                Map<String, List<Double>> times = new LinkedHashMap<>();
+                for(int fork = 0; fork < FORKS; fork++){
+                    for(String line : runChild(options, setting.equals("uninstrumented") ? "plain" : "alien")){
+                        int tab = line.indexOf('\t');
+                        if(line.startsWith("COUNT\t")){
+                            if(setting.equals("on") && fork == 0) counts.add(line.substring(tab + 1));
+                        } else if(tab > 0){
+                            times.computeIfAbsent(line.substring(0, tab), operation -> new ArrayList<>())
+                                    .add(Double.parseDouble(line.substring(tab + 1)));
+                        }
+                    }
+                }
+                Map<String, String> medians = new LinkedHashMap<>();
+                for(Map.Entry<String, List<Double>> operation : times.entrySet()){
+                    List<Double> forks = operation.getValue();
+                    Collections.sort(forks);
+                    medians.put(operation.getKey(), Benchmark.formatNanos(forks.get(forks.size() / 2)));
+                }
+                results.put(setting, medians);
+            } finally {
+                recording.delete();
+            }
+        }
+
+        System.out.println(String.format("%-26s%-18s%-18s%-18s%-18s", "Operation", "uninstrumented", "off", "on",
+                "on, recording").trim());
+        for(String operation : OPERATIONS){
+            StringBuilder line = new StringBuilder(String.format("%-26s", operation));
+            for(String setting : settings) line.append(String.format("%-18s", results.get(setting).getOrDefault(operation, "-")));
+            System.out.println(line.toString().trim());
+        }
+        System.out.println();
+        System.out.println("COUNTS (on)");
+        for(String count : counts) System.out.println(count);
+    }
+
+    static List<String> runChild(List<String> options, String aliens) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.addAll(options);
+        for(String property : new String[]{"bigo.warmupMillis", "bigo.measureMillis"}){
+            if(System.getProperty(property) != null) command.add("-D" + property + "=" + System.getProperty(property));
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(EqualsMetricsBenchmark.class.getName());
+        command.add("--child");
+        command.add(aliens);
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        List<String> lines = new ArrayList<>();
+        try(BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))){
+            String line;
+            while((line = reader.readLine()) != null) lines.add(line);
+        }
+        process.waitFor();
+        return lines;
+    }
+
+    // in the child JVM -> prints "operation<tab>ns" for each operation, then "COUNT<tab>name value" for each count.
+    static void child(boolean plain){
+        Random random = new Random(42);
+        AlienHashBenchmark.Record[] records = AlienHashBenchmark.generate(ALIENS, random);
+        if(plain){
+            time(records, record -> new PlainAlien(record.colour, record.colourOfSpots, record.numberOfEyes,
+                    record.fromZorb, record.legLengths));
+            return;
+        }
+        time(records, AlienHashBenchmark.Record::newAlien);
+
+        ImmutableAlien[] immutables = new ImmutableAlien[ALIENS];
+        for(int i = 0; i < ALIENS; i++) immutables[i] = new ImmutableAlien(new Date(random.nextInt()), records[i].colour, records[i].numberOfEyes);
+        print("ImmutableAlien.hashCode", Benchmark.measure(i -> immutables[i & (ALIENS - 1)].hashCode()));
+
+        if(EqualsMetrics.ENABLED){
+            for(Map.Entry<String, Long> count : EqualsMetrics.snapshot().entrySet()){
+                System.out.printf("COUNT\t%-50s%,d%n", count.getKey(), count.getValue());
+            }
+        }
+    }
+
+    static <T> void time(AlienHashBenchmark.Record[] records, Factory<T> factory){
+        int mask = ALIENS - 1;
+        List<T> aliens = new ArrayList<>();
+        List<T> copies = new ArrayList<>();
+        Map<T, Integer> map = new HashMap<>();
+        for(int i = 0; i < ALIENS; i++){
+            aliens.add(factory.newAlien(records[i]));
+            copies.add(factory.newAlien(records[i]));
+            map.put(aliens.get(i), i);
+        }
+        print("equals, equal", Benchmark.measure(i -> aliens.get(i & mask).equals(copies.get(i & mask)) ? 1 : 0));
+        print("equals, random", Benchmark.measure(i -> aliens.get(i & mask).equals(copies.get((i * 31) & mask)) ? 1 : 0));
+        print("hashCode, cached", Benchmark.measure(i -> aliens.get(i & mask).hashCode()));
+        print("HashMap.get, new alien", Benchmark.measure(i -> map.get(factory.newAlien(records[i & mask]))));
+    }
+
+    static void print(String operation, Benchmark.Result result){
+        System.out.println(operation + "\t" + result.nanosPerOp());
+    }
+}
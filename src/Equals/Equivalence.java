@@ -0,0 +1,21 @@
+package Equals;
+
+/*
+    equals, hashCode and compareTo for a class T, as a separate object -> see EquivalenceGenerator, which generates one
+    for any class from its fields, eg.
+        private static final Equivalence<Alien> EQUIVALENCE = EquivalenceGenerator.of(Alien.class);
+        public boolean equals(Object object){ return EQUIVALENCE.equal(this, object); }
+        public int hashCode(){ return EQUIVALENCE.hash(this); }
+ */
+public interface Equivalence<T> {
+
+    // true if other is a T with equal fields -> follows the same rules as Alien.equals (identity first, then instanceof).
+    boolean equal(T object, Object other);
+
+    // 0 for null, otherwise a hash of the fields which is consistent with equal.
+    int hash(T object);
+
+    // compares the fields in order, so the first field that differs decides -> nulls come first. Throws
+    // UnsupportedOperationException if a field has no order (see EquivalenceGenerator).
+    int compare(T object, T other);
+}
@@ -0,0 +1,178 @@
+package Equals;
+
+import BigO.Benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/*
+    Compares three ways of implementing equals and hashCode for Alien;
+        handwritten     -> Alien.equals and Alien.hashCode, written with Equal and Hash.
+        generated       -> EquivalenceGenerator.of(Alien.class), method handles in a hidden class.
+        reflective      -> what EqualsBuilder.reflectionEquals does -> read each field with Field.get and compare the
+                           boxed values (with Arrays.equals for arrays).
+    equals is timed on pairs of equal (but not identical) aliens, which compare every field, and on pairs that differ
+    only in the last leg, which is the worst case for an early exit. hashCode is timed without the cache, ie. as the
+    first call on each alien (the handwritten time is for Alien.hashCode with its cache, which is what callers see).
+    The generated hash uses the same formula as Alien.hashCode, so the two must agree -> this is checked first.
+    Each implementation is timed in its own child JVM -> in one JVM the first implementation timed would get call sites
+    (eg. in Benchmark.measure) which have only seen its own lambdas, and the later ones would be compiled with the
+    profile of all of them, which alone made whichever row came first look up to 20% faster.
+
+    Usage: java Equals.EquivalenceBenchmark
+ */
+public class EquivalenceBenchmark {
+
+    static final int PAIRS = 1 << 10;
+
+    public static void main(String[] args) throws IllegalAccessException, IOException, InterruptedException {
+        if(args.length == 2 && args[0].equals("--child")){
+            child(args[1]);
+            return;
+        }
+        Aliens aliens = new Aliens();
+        Equivalence<Alien> generated = EquivalenceGenerator.of(Alien.class);
+        Reflective reflective = new Reflective(Alien.class);
+        int agree = 0;
+        for(int i = 0; i < PAIRS; i++){
+            Alien alien = aliens.aliens[i];
+            if(generated.hash(alien) == alien.hashCode() && generated.equal(alien, aliens.equalCopies[i])
+                    && !generated.equal(alien, aliens.lastLegDiffers[i])
+                    && reflective.equal(alien, aliens.equalCopies[i]) && !reflective.equal(alien, aliens.lastLegDiffers[i])) agree++;
+        }
+        System.out.printf("generated equal and hash agree with Alien.equals and Alien.hashCode for %d of %d aliens%n%n",
+                agree, PAIRS);
+
+        System.out.println(String.format("%-16s%-16s%-20s%-16s", "Implementation", "equals (equal)", "equals (last leg)", "hashCode").trim());
+        for(String implementation : new String[]{"handwritten", "generated", "reflective"}){
+            for(String line : runChild(implementation)) System.out.println(line);
+        }
+    }
+
+    // PAIRS aliens, with an equal copy of each, and a copy whose last leg differs.
+    static final class Aliens {
+        final Alien[] aliens = new Alien[PAIRS];
+        final Alien[] equalCopies = new Alien[PAIRS];
+        final Alien[] lastLegDiffers = new Alien[PAIRS];
+
+        Aliens(){
+            AlienHashBenchmark.Record[] records = AlienHashBenchmark.generate(PAIRS, new Random(42));
+            for(int i = 0; i < PAIRS; i++){
+                AlienHashBenchmark.Record record = records[i];
+                aliens[i] = record.newAlien();
+                equalCopies[i] = record.newAlien();
+                int[] legs = record.legLengths.clone();
+                legs[legs.length - 1]++;
+                lastLegDiffers[i] = new Alien(record.colour, record.colourOfSpots, record.numberOfEyes, record.fromZorb, legs);
+            }
+        }
+    }
+
+    static List<String> runChild(String implementation) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        for(String property : new String[]{"bigo.warmupMillis", "bigo.measureMillis"}){
+            if(System.getProperty(property) != null) command.add("-D" + property + "=" + System.getProperty(property));
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(EquivalenceBenchmark.class.getName());
+        command.add("--child");
+        command.add(implementation);
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        List<String> lines = new ArrayList<>();
+        try(BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))){
+            String line;
+            while((line = reader.readLine()) != null) lines.add(line);
+        }
+        process.waitFor();
+        return lines;
+    }
+
+    // in the child JVM -> prints the row of one implementation.
+    static void child(String implementation) throws IllegalAccessException {
+        Aliens pairs = new Aliens();
+        Alien[] aliens = pairs.aliens;
+        Alien[] equalCopies = pairs.equalCopies;
+        Alien[] lastLegDiffers = pairs.lastLegDiffers;
+        int mask = PAIRS - 1;
+        switch(implementation){
+            case "handwritten":
+                row(implementation,
+                        Benchmark.measure(i -> aliens[i & mask].equals(equalCopies[i & mask]) ? 1 : 0),
+                        Benchmark.measure(i -> aliens[i & mask].equals(lastLegDiffers[i & mask]) ? 1 : 0),
+                        Benchmark.measure(i -> aliens[i & mask].hashCode()));
+                break;
+            case "generated":
+                Equivalence<Alien> generated = EquivalenceGenerator.of(Alien.class);
+                row(implementation,
+                        Benchmark.measure(i -> generated.equal(aliens[i & mask], equalCopies[i & mask]) ? 1 : 0),
+                        Benchmark.measure(i -> generated.equal(aliens[i & mask], lastLegDiffers[i & mask]) ? 1 : 0),
+                        Benchmark.measure(i -> generated.hash(aliens[i & mask])));
+                break;
+            default:
+                Reflective reflective = new Reflective(Alien.class);
+                row(implementation,
+                        Benchmark.measure(i -> reflective.equal(aliens[i & mask], equalCopies[i & mask]) ? 1 : 0),
+                        Benchmark.measure(i -> reflective.equal(aliens[i & mask], lastLegDiffers[i & mask]) ? 1 : 0),
+                        Benchmark.measure(i -> reflective.hash(aliens[i & mask])));
+        }
+    }
+
+    static void row(String name, Benchmark.Result equal, Benchmark.Result lastLeg, Benchmark.Result hash){
+        System.out.println(String.format("%-16s%-16s%-20s%-16s", name, equal, lastLeg, hash).trim());
+    }
+
+    // equals and hashCode by reflection, as EqualsBuilder.reflectionEquals and HashCodeBuilder.reflectionHashCode do.
+    static final class Reflective {
+        private final Class<?> type;
+        private final List<Field> fields = new ArrayList<>();
+
+        Reflective(Class<?> type){
+            this.type = type;
+            for(Field field : type.getDeclaredFields()){
+                if(Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers())) continue;
+                field.setAccessible(true);
+                fields.add(field);
+            }
+        }
+
+        boolean equal(Object object, Object other){
+            if(object == other) return true;
+            if(!type.isInstance(other)) return false;
+            try {
+                for(Field field : fields){
+                    Object value = field.get(object); // boxes primitive fields.
+                    Object otherValue = field.get(other);
+                    boolean equal = value instanceof int[] ? Arrays.equals((int[]) value, (int[]) otherValue)
+                            : Equal.equal(value, otherValue);
+                    if(!equal) return false;
+                }
+                return true;
+            } catch(IllegalAccessException e){
+                throw new IllegalStateException(e);
+            }
+        }
+
+        int hash(Object object){
+            try {
+                int result = 17;
+                for(Field field : fields){
+                    Object value = field.get(object);
+                    result = Hash.MULTIPLIER * result + (value instanceof int[] ? Arrays.hashCode((int[]) value) : Hash.hash(value));
+                }
+                return Hash.mix(result);
+            } catch(IllegalAccessException e){
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
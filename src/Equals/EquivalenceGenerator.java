@@ -0,0 +1,388 @@
+package Equals;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.invoke.MethodType.methodType;
+
+/*
+    Generates an Equivalence (equals, hashCode and compare) for a class at runtime, from its fields -> the same code
+    as a handwritten equals using class Equal (see Alien), but without writing it by hand for every class.
+
+    Apache Commons EqualsBuilder.reflectionEquals does this with REFLECTION -> on every call it reads each field with
+    Field.get, which checks access and boxes primitive fields, so it is many times slower than a handwritten equals.
+    Instead this builds the comparison of each field once, as METHOD HANDLES (typed, directly invocable references to
+    methods and field getters, from java.lang.invoke);
+        * each field is read with a getter handle, and compared with the matching Equal.equal overload (boolean, long for
+          the integral types, char, double for the floating point types, Object), or Arrays.equals for arrays,
+        * and the Equivalence makes the identity (==) and instanceof checks, then calls the field comparisons in order
+          with &&, so that the first unequal field returns false.
+    hash and compare are built the same way, with the Hash.hash overloads and Boolean/Long/Double.compare etc. compare
+    needs an order for every field -> primitives, Comparable types (compared with compareTo, nulls first) and arrays of
+    either (Arrays.compare). A class with any other field (eg. a List) still gets equal and hash, but its compare throws
+    UnsupportedOperationException -> use of(type, fieldNames) to leave such fields out.
+
+    The JIT only inlines THROUGH a method handle when the handle is a constant, ie. held in a static final field -> a
+    handle in a field of an object is called through its own compiled code (its LambdaForm), which costs about half as
+    much again as a handwritten equals. So each class gets its own copy of GeneratedEquivalence (a hidden class, see
+    the comment there) whose static final fields hold that class's handles. A hidden class can be unloaded, so the copy
+    lives only as long as the Equivalence does.
+
+    The copy has SLOTS handles for each of equal, hash and compare, one per field, which it calls one after another in
+    Java (with &&, + and if) -> rather than one handle which combines the fields itself, since each combinator
+    (guardWithTest etc.) is another call, and the JIT stops inlining at a depth of 15 calls (MaxInlineLevel), and after
+    one level of the same combinator inside itself. A class with more than SLOTS fields has the rest combined in the
+    last slot, as a balanced tree (see fieldsEqual), which is only a level deeper each time the number of fields
+    doubles. So equal, hash and compare are as fast as handwritten ones (see EquivalenceBenchmark).
+ */
+public final class EquivalenceGenerator {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final byte[] TEMPLATE_CLASS_FILE = templateClassFile();
+    // the number of fields that GeneratedEquivalence calls one by one -> see the comment at the top.
+    static final int SLOTS = 8;
+
+    // the equivalence over all fields, cached per class.
+    private static final ClassValue<Equivalence<?>> ALL_FIELDS = new ClassValue<Equivalence<?>>() {
+        @Override
+        protected Equivalence<?> computeValue(Class<?> type){
+            return generate(type, instanceFields(type));
+        }
+    };
+
+    private EquivalenceGenerator(){
+    }
+
+    // an equivalence over every non-static, non-transient field of type (and its superclasses, theirs first).
+    // transient fields are skipped, since they hold derived state such as a cached hashCode. The fields must be open to
+    // this class -> a class in a module which does not open its package (eg. java.util.ArrayList) is rejected with
+    // IllegalStateException.
+    @SuppressWarnings("unchecked")
+    public static <T> Equivalence<T> of(Class<T> type){
+        return (Equivalence<T>) ALL_FIELDS.get(type);
+    }
+
+    // an equivalence over the named fields only, compared in the order given -> put the fields that are cheapest or most
+    // likely to differ first, as in Alien.equals. Each call generates a new class, so keep the result in a static final
+    // field.
+    public static <T> Equivalence<T> of(Class<T> type, String... fieldNames){
+        List<Field> fields = new ArrayList<>();
+        for(String name : fieldNames) fields.add(field(type, name));
+        return generate(type, fields);
+    }
+
+    private static <T> Equivalence<T> generate(Class<T> type, List<Field> fields){
+        if(type.isPrimitive() || type.isArray() || type.isInterface()){
+            throw new IllegalArgumentException("Not a class with fields: " + type.getName());
+        }
+        try {
+            List<MethodHandle> getters = new ArrayList<>();
+            for(Field field : fields){
+                // a superclass field is read through a lookup in the superclass (private access is per class), and
+                // adapted to take a T, so that every getter has the same type.
+                MethodHandle getter = MethodHandles.privateLookupIn(field.getDeclaringClass(), LOOKUP).unreflectGetter(field);
+                getters.add(getter.asType(methodType(field.getType(), type)));
+            }
+            String unordered = null;
+            for(Field field : fields){
+                if(unordered == null && !isOrdered(field.getType())){
+                    unordered = "Cannot compare " + type.getName() + ": field " + field.getName() + " is a "
+                            + field.getType().getName() + ", which is not Comparable";
+                }
+            }
+            return define(type, getters, unordered);
+        } catch(ReflectiveOperationException e){
+            throw new IllegalStateException("Cannot generate an Equivalence for " + type.getName(), e);
+        }
+    }
+
+    // the handles for each slot, and a new copy of GeneratedEquivalence holding them (or, if its class file cannot be
+    // read, a Generated). unordered is the message for compare to throw, or null if every field can be ordered.
+    @SuppressWarnings("unchecked")
+    private static <T> Equivalence<T> define(Class<T> type, List<MethodHandle> getters, String unordered)
+            throws ReflectiveOperationException {
+        MethodType objects = methodType(boolean.class, Object.class, Object.class);
+        MethodHandle zero = MethodHandles.constant(int.class, 0);
+        MethodHandle[] equal = new MethodHandle[SLOTS];
+        MethodHandle[] hash = new MethodHandle[SLOTS];
+        MethodHandle[] compare = new MethodHandle[SLOTS];
+        int end = 0; // the fields up to the end of the slot.
+        for(int slot = 0; slot < SLOTS; slot++){
+            int start = Math.min(slot, getters.size());
+            end = slot + 1 < SLOTS ? Math.min(slot + 1, getters.size()) : getters.size();
+            List<MethodHandle> fields = getters.subList(start, end);
+            if(fields.isEmpty()){
+                equal[slot] = alwaysReturn(true, Object.class, Object.class);
+                hash[slot] = MethodHandles.dropArguments(zero, 0, Object.class);
+                compare[slot] = MethodHandles.dropArguments(zero, 0, Object.class, Object.class);
+                continue;
+            }
+            equal[slot] = fieldsEqual(type, fields).asType(objects);
+            // scaled by MULTIPLIER once for each field after the slot (see hashSum).
+            hash[slot] = MethodHandles.filterReturnValue(hashSum(type, fields), MethodHandles.insertArguments(
+                    helper("combine", methodType(int.class, int.class, int.class, int.class)), 1, power(getters.size() - end), 0))
+                    .asType(methodType(int.class, Object.class));
+            compare[slot] = unordered == null ? fieldsCompare(type, fields).asType(methodType(int.class, Object.class, Object.class))
+                    : MethodHandles.dropArguments(zero, 0, Object.class, Object.class);
+        }
+        if(unordered != null){
+            compare[0] = MethodHandles.insertArguments(helper("unordered", methodType(int.class, String.class,
+                    Object.class, Object.class)), 0, unordered);
+        }
+        // Alien.hashCode starts from 17, which is multiplied by MULTIPLIER once for each field.
+        int seed = 17 * power(getters.size());
+        if(TEMPLATE_CLASS_FILE == null) return new Generated<>(type, seed, equal, hash, compare);
+
+        List<Object> classData = new ArrayList<>();
+        classData.add(type);
+        classData.add(seed);
+        classData.addAll(Arrays.asList(equal));
+        classData.addAll(Arrays.asList(hash));
+        classData.addAll(Arrays.asList(compare));
+        Class<?> copy = LOOKUP.defineHiddenClassWithClassData(TEMPLATE_CLASS_FILE, List.copyOf(classData), true).lookupClass();
+        return (Equivalence<T>) copy.getDeclaredConstructor().newInstance();
+    }
+
+    // MULTIPLIER^exponent (overflowing as Hash.hash does).
+    private static int power(int exponent){
+        int result = 1;
+        for(int i = 0; i < exponent; i++) result *= Hash.MULTIPLIER;
+        return result;
+    }
+
+    private static byte[] templateClassFile(){
+        try(InputStream in = EquivalenceGenerator.class.getResourceAsStream("GeneratedEquivalence.class")){
+            return in == null ? null : in.readAllBytes();
+        } catch(IOException e){
+            return null;
+        }
+    }
+
+    // the Equivalence when there is no class file to copy (eg. from a class loader which does not serve class files as
+    // resources) -> it holds the handles in arrays, so it works the same, but the JIT does not inline through them.
+    private static final class Generated<T> implements Equivalence<T> {
+        private final Class<T> type;
+        private final int seed;
+        private final MethodHandle[] equal; // (Object, Object)boolean
+        private final MethodHandle[] hash; // (Object)int
+        private final MethodHandle[] compare; // (Object, Object)int
+
+        Generated(Class<T> type, int seed, MethodHandle[] equal, MethodHandle[] hash, MethodHandle[] compare){
+            this.type = type;
+            this.seed = seed;
+            this.equal = equal;
+            this.hash = hash;
+            this.compare = compare;
+        }
+
+        @Override
+        public boolean equal(T object, Object other){
+            if(object == other) return true;
+            if(!type.isInstance(other)) return false;
+            try {
+                for(MethodHandle slot : equal) if(!(boolean) slot.invokeExact((Object) object, other)) return false;
+                return true;
+            } catch(Throwable e){
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        public int hash(T object){
+            if(object == null) return 0;
+            try {
+                int result = seed;
+                for(MethodHandle slot : hash) result += (int) slot.invokeExact((Object) object);
+                return Hash.mix(result);
+            } catch(Throwable e){
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        public int compare(T object, T other){
+            try {
+                for(MethodHandle slot : compare){
+                    int result = (int) slot.invokeExact((Object) object, (Object) other);
+                    if(result != 0) return result;
+                }
+                return 0;
+            } catch(Throwable e){
+                throw rethrow(e);
+            }
+        }
+    }
+
+    // invokeExact is declared to throw Throwable, but the handles only call methods which throw unchecked exceptions.
+    static RuntimeException rethrow(Throwable e){
+        if(e instanceof RuntimeException) throw (RuntimeException) e;
+        if(e instanceof Error) throw (Error) e;
+        throw new IllegalStateException(e);
+    }
+
+    // The handles below combine the fields of a slot -> one field, or the rest of the fields in the last slot, as a
+    // BALANCED tree (the first half of the fields, then the second half, and so on down), so that the tree is only a
+    // level deeper each time the number of fields doubles.
+
+    // (T, T)boolean -> the fields equal, in order (the first half && the second half).
+    private static MethodHandle fieldsEqual(Class<?> type, List<MethodHandle> getters) throws ReflectiveOperationException {
+        if(getters.size() == 1){
+            MethodHandle getter = getters.get(0);
+            MethodHandle test = fieldHandle(getter.type().returnType(), "equal", boolean.class);
+            return MethodHandles.filterArguments(test, 0, getter, getter);
+        }
+        int half = getters.size() / 2;
+        return MethodHandles.guardWithTest(fieldsEqual(type, getters.subList(0, half)),
+                fieldsEqual(type, getters.subList(half, getters.size())), alwaysReturn(false, type, type));
+    }
+
+    // The hash is mix(MULTIPLIER * (... (MULTIPLIER * 17 + hash(field1)) ...) + hash(fieldN)), as in Alien.hashCode.
+    // That is 17 * MULTIPLIER^n + the sum of hash(field i) * MULTIPLIER^(n - 1 - i), so the fields can be summed in any
+    // grouping -> the sum over some fields is the sum over the first half, times MULTIPLIER^(size of the second half),
+    // plus the sum over the second half.
+
+    // (T)int -> the sum of hash(field i) * MULTIPLIER^(size - 1 - i), for the fields read by getters.
+    private static MethodHandle hashSum(Class<?> type, List<MethodHandle> getters) throws ReflectiveOperationException {
+        if(getters.size() == 1){
+            MethodHandle getter = getters.get(0);
+            return MethodHandles.filterReturnValue(getter, fieldHandle(getter.type().returnType(), "hash", int.class));
+        }
+        int half = getters.size() / 2;
+        int scale = power(getters.size() - half);
+        MethodHandle combine = MethodHandles.insertArguments(helper("combine",
+                methodType(int.class, int.class, int.class, int.class)), 1, scale);
+        MethodHandle combined = MethodHandles.filterArguments(combine, 0, hashSum(type, getters.subList(0, half)),
+                hashSum(type, getters.subList(half, getters.size())));
+        return MethodHandles.permuteArguments(combined, methodType(int.class, type), 0, 0);
+    }
+
+    // (T, T)int -> the comparison of the first half of the fields, or if that is 0, of the second half.
+    private static MethodHandle fieldsCompare(Class<?> type, List<MethodHandle> getters) throws ReflectiveOperationException {
+        if(getters.size() == 1){
+            MethodHandle getter = getters.get(0);
+            return MethodHandles.filterArguments(fieldHandle(getter.type().returnType(), "compare", int.class), 0, getter, getter);
+        }
+        int half = getters.size() / 2;
+        MethodHandle isZero = MethodHandles.dropArguments(helper("isZero", methodType(boolean.class, int.class)), 1, type, type);
+        MethodHandle returnIt = MethodHandles.dropArguments(MethodHandles.identity(int.class), 1, type, type);
+        MethodHandle rest = fieldsCompare(type, getters.subList(half, getters.size()));
+        // (int comparison, T, T) -> comparison == 0 ? rest(T, T) : comparison
+        MethodHandle decide = MethodHandles.guardWithTest(isZero, MethodHandles.dropArguments(rest, 0, int.class), returnIt);
+        return MethodHandles.foldArguments(decide, fieldsCompare(type, getters.subList(0, half)));
+    }
+
+    // the handle that compares (equal), hashes (hash) or orders (compare) a field of the given type, taking the field
+    // type as its argument(s) -> eg. for an int field, Equal.equal(long, long) adapted to (int, int).
+    private static MethodHandle fieldHandle(Class<?> fieldType, String operation, Class<?> returnType)
+            throws ReflectiveOperationException {
+        Class<?> parameter = parameterFor(fieldType);
+        MethodHandle handle;
+        if(fieldType.isArray()){
+            String name = operation.equals("equal") ? "equals" : operation.equals("hash") ? "hashCode" : operation;
+            // Arrays.compare(T[], T[]) takes arrays of Comparable (its T extends Comparable), nulls first.
+            if(operation.equals("compare") && parameter == Object[].class) parameter = Comparable[].class;
+            handle = LOOKUP.findStatic(Arrays.class, name, operation.equals("hash") ? methodType(returnType, parameter)
+                    : methodType(returnType, parameter, parameter));
+        } else if(operation.equals("equal")){
+            handle = LOOKUP.findStatic(Equal.class, "equal", methodType(boolean.class, parameter, parameter));
+        } else if(operation.equals("hash")){
+            handle = LOOKUP.findStatic(Hash.class, "hash", methodType(int.class, parameter));
+        } else if(parameter == Object.class){
+            handle = helper("compareObjects", methodType(int.class, Comparable.class, Comparable.class));
+        } else {
+            handle = LOOKUP.findStatic(COMPARATORS.get(parameter), "compare", methodType(int.class, parameter, parameter));
+        }
+        return operation.equals("hash") ? handle.asType(methodType(returnType, fieldType))
+                : handle.asType(methodType(returnType, fieldType, fieldType));
+    }
+
+    // the parameter type of the Equal.equal / Hash.hash / compare overload that handles a field type.
+    private static Class<?> parameterFor(Class<?> fieldType){
+        if(fieldType.isArray()) return fieldType.getComponentType().isPrimitive() ? fieldType : Object[].class;
+        if(fieldType == boolean.class || fieldType == char.class) return fieldType;
+        if(fieldType == byte.class || fieldType == short.class || fieldType == int.class || fieldType == long.class) return long.class;
+        if(fieldType == float.class || fieldType == double.class) return double.class;
+        return Object.class;
+    }
+
+    // whether compare can order a field of the type (see the comment at the top).
+    private static boolean isOrdered(Class<?> fieldType){
+        Class<?> type = fieldType.isArray() ? fieldType.getComponentType() : fieldType;
+        return type.isPrimitive() || Comparable.class.isAssignableFrom(type);
+    }
+
+    private static final Map<Class<?>, Class<?>> COMPARATORS = new HashMap<>();
+
+    static {
+        COMPARATORS.put(boolean.class, Boolean.class);
+        COMPARATORS.put(char.class, Character.class);
+        COMPARATORS.put(long.class, Long.class);
+        COMPARATORS.put(double.class, Double.class);
+    }
+
+    private static MethodHandle alwaysReturn(boolean value, Class<?>... parameters){
+        return MethodHandles.dropArguments(MethodHandles.constant(boolean.class, value), 0, parameters);
+    }
+
+    private static MethodHandle helper(String name, MethodType type) throws ReflectiveOperationException {
+        return LOOKUP.findStatic(EquivalenceGenerator.class, name, type);
+    }
+
+    // the small methods below are the pieces of the handle trees that the JDK has no method for.
+
+    private static boolean isZero(int value){
+        return value == 0;
+    }
+
+    private static int combine(int first, int scale, int second){
+        return first * scale + second;
+    }
+
+    // compare for a class with a field that has no order.
+    private static int unordered(String message, Object object, Object other){
+        throw new UnsupportedOperationException(message);
+    }
+
+    // only used when every field type is Comparable (or primitive), which is checked when the Equivalence is generated.
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compareObjects(Comparable object, Comparable other){
+        if(object == other) return 0;
+        if(object == null) return -1;
+        if(other == null) return 1;
+        return object.compareTo(other);
+    }
+
+    private static List<Field> instanceFields(Class<?> type){
+        List<Field> fields = new ArrayList<>();
+        if(type.getSuperclass() != null && type.getSuperclass() != Object.class){
+            fields.addAll(instanceFields(type.getSuperclass()));
+        }
+        for(Field field : type.getDeclaredFields()){
+            if(!Modifier.isStatic(field.getModifiers()) && !Modifier.isTransient(field.getModifiers())) fields.add(field);
+        }
+        return fields;
+    }
+
+    private static Field field(Class<?> type, String name){
+        for(Class<?> owner = type; owner != null; owner = owner.getSuperclass()){
+            try {
+                Field field = owner.getDeclaredField(name);
+                if(Modifier.isStatic(field.getModifiers())) throw new IllegalArgumentException("Field is static: " + name);
+                return field;
+            } catch(NoSuchFieldException e){
+                // look in the superclass.
+            }
+        }
+        throw new IllegalArgumentException("No field " + name + " in " + type.getName());
+    }
+}
@@ -0,0 +1,103 @@
+package Equals;
+
+import java.lang.constant.ConstantDescs;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+
+/*
+    The Equivalence that EquivalenceGenerator generates. It is never used as it is -> EquivalenceGenerator reads its
+    class file and defines a new copy of it for each class (a HIDDEN CLASS, as Payroll does for its kernels), with that
+    class's method handles as the copy's CLASS DATA. The copy reads them into static final fields when it is
+    initialized, and the JIT treats a static final field as a constant, so it inlines through the handles into the field
+    getters and the Equal and Hash methods -> the compiled equal is the same code as a handwritten one.
+
+    There is a handle per field (EquivalenceGenerator.SLOTS of them) for each of equal, hash and compare, called one
+    after another as a handwritten equals would compare the fields. The slots a class has no field for hold a handle
+    which returns a constant (true, or 0), so the JIT removes their calls.
+ */
+final class GeneratedEquivalence implements Equivalence<Object> {
+
+    // the class data is a List of the class, the seed of the hash, then the equal, hash and compare handles of each slot.
+    private static final Class<?> TYPE = classData(0, Class.class);
+    private static final int SEED = classData(1, Integer.class);
+
+    // (Object, Object)boolean
+    private static final MethodHandle EQUAL_0 = classData(2, MethodHandle.class);
+    private static final MethodHandle EQUAL_1 = classData(3, MethodHandle.class);
+    private static final MethodHandle EQUAL_2 = classData(4, MethodHandle.class);
+    private static final MethodHandle EQUAL_3 = classData(5, MethodHandle.class);
+    private static final MethodHandle EQUAL_4 = classData(6, MethodHandle.class);
+    private static final MethodHandle EQUAL_5 = classData(7, MethodHandle.class);
+    private static final MethodHandle EQUAL_6 = classData(8, MethodHandle.class);
+    private static final MethodHandle EQUAL_7 = classData(9, MethodHandle.class);
+    // (Object)int, already multiplied by MULTIPLIER once for each field after it.
+    private static final MethodHandle HASH_0 = classData(10, MethodHandle.class);
+    private static final MethodHandle HASH_1 = classData(11, MethodHandle.class);
+    private static final MethodHandle HASH_2 = classData(12, MethodHandle.class);
+    private static final MethodHandle HASH_3 = classData(13, MethodHandle.class);
+    private static final MethodHandle HASH_4 = classData(14, MethodHandle.class);
+    private static final MethodHandle HASH_5 = classData(15, MethodHandle.class);
+    private static final MethodHandle HASH_6 = classData(16, MethodHandle.class);
+    private static final MethodHandle HASH_7 = classData(17, MethodHandle.class);
+    // (Object, Object)int
+    private static final MethodHandle COMPARE_0 = classData(18, MethodHandle.class);
+    private static final MethodHandle COMPARE_1 = classData(19, MethodHandle.class);
+    private static final MethodHandle COMPARE_2 = classData(20, MethodHandle.class);
+    private static final MethodHandle COMPARE_3 = classData(21, MethodHandle.class);
+    private static final MethodHandle COMPARE_4 = classData(22, MethodHandle.class);
+    private static final MethodHandle COMPARE_5 = classData(23, MethodHandle.class);
+    private static final MethodHandle COMPARE_6 = classData(24, MethodHandle.class);
+    private static final MethodHandle COMPARE_7 = classData(25, MethodHandle.class);
+
+    private static <T> T classData(int index, Class<T> type){
+        try {
+            return MethodHandles.classDataAt(MethodHandles.lookup(), ConstantDescs.DEFAULT_NAME, type, index);
+        } catch(IllegalAccessException e){
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // TYPE is a constant, so isInstance compiles to the same check as instanceof.
+    @Override
+    public boolean equal(Object object, Object other){
+        if(object == other) return true;
+        if(!TYPE.isInstance(other)) return false;
+        try {
+            return (boolean) EQUAL_0.invokeExact(object, other) && (boolean) EQUAL_1.invokeExact(object, other)
+                    && (boolean) EQUAL_2.invokeExact(object, other) && (boolean) EQUAL_3.invokeExact(object, other)
+                    && (boolean) EQUAL_4.invokeExact(object, other) && (boolean) EQUAL_5.invokeExact(object, other)
+                    && (boolean) EQUAL_6.invokeExact(object, other) && (boolean) EQUAL_7.invokeExact(object, other);
+        } catch(Throwable e){
+            throw EquivalenceGenerator.rethrow(e);
+        }
+    }
+
+    @Override
+    public int hash(Object object){
+        if(object == null) return 0;
+        try {
+            return Hash.mix(SEED + (int) HASH_0.invokeExact(object) + (int) HASH_1.invokeExact(object)
+                    + (int) HASH_2.invokeExact(object) + (int) HASH_3.invokeExact(object) + (int) HASH_4.invokeExact(object)
+                    + (int) HASH_5.invokeExact(object) + (int) HASH_6.invokeExact(object) + (int) HASH_7.invokeExact(object));
+        } catch(Throwable e){
+            throw EquivalenceGenerator.rethrow(e);
+        }
+    }
+
+    @Override
+    public int compare(Object object, Object other){
+        try {
+            int result = (int) COMPARE_0.invokeExact(object, other);
+            if(result == 0) result = (int) COMPARE_1.invokeExact(object, other);
+            if(result == 0) result = (int) COMPARE_2.invokeExact(object, other);
+            if(result == 0) result = (int) COMPARE_3.invokeExact(object, other);
+            if(result == 0) result = (int) COMPARE_4.invokeExact(object, other);
+            if(result == 0) result = (int) COMPARE_5.invokeExact(object, other);
+            if(result == 0) result = (int) COMPARE_6.invokeExact(object, other);
+            if(result == 0) result = (int) COMPARE_7.invokeExact(object, other);
+            return result;
+        } catch(Throwable e){
+            throw EquivalenceGenerator.rethrow(e);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package Equals;
+
+import java.util.Arrays;
+
+/*
+    The hashCode partner of class Equal -> one static hash method per kind of field, so that a hashCode can be written
+    the same way as an equals, eg. result = MULTIPLIER * result + hash(field) for each field used in equals.
+    The rule is that EQUAL OBJECTS MUST HAVE EQUAL HASHCODES, so each method hashes a field by the same notion of
+    equality that Equal (or Arrays.equals) uses to compare it;
+        * hash(Object) uses the object's own hashCode, and 0 for null.
+        * hash(int[]) uses Arrays.hashCode, which hashes the CONTENTS. Calling hashCode() on an array gives the
+          identity hash of that array object, so two arrays with equal contents would (almost always) hash differently,
+          which breaks the rule since Arrays.equals says they are equal.
+    mix() should be applied to the final result. Summing the field hashes leaves similar objects with similar
+    hashCodes (eg. aliens differing only in the length of their last leg hash to consecutive ints), and a HashMap only uses
+    the low bits of the hashCode to choose a bucket, so such objects crowd into neighbouring buckets. mix() scrambles
+    the bits so that every input bit affects every output bit.
+ */
+public class Hash {
+
+    // The multiplier to combine field hashes with, ie. result = MULTIPLIER * result + hash(field).
+    // 31 (the usual choice) is a poor one when fields are Strings or arrays, since String.hashCode and Arrays.hashCode
+    // are themselves sums of powers of 31 -> the terms of one field overlap the terms of the next, and aliens which
+    // differ in two fields can cancel out to the same sum. A large odd constant (2^32 divided by the golden ratio)
+    // shares no structure with them. mix() cannot undo such collisions, since it only scrambles the final sum.
+    static public final int MULTIPLIER = 0x9E3779B9;
+
+    static public int hash(boolean value){
+        return Boolean.hashCode(value); // 1231 or 1237 -> two primes far apart, rather than 0 or 1.
+    }
+
+    // handles long, int, short, and byte fields (by implicit conversion), folding the high half of a long into the low.
+    static public int hash(long value){
+        return Long.hashCode(value);
+    }
+
+    static public int hash(char value){
+        return value;
+    }
+
+    // consistent with Equal.equal(double, double), which compares the doubleToLongBits representation.
+    static public int hash(double value){
+        return Long.hashCode(Double.doubleToLongBits(value));
+    }
+
+    static public int hash(Object object){
+        return object == null ? 0 : object.hashCode();
+    }
+
+    static public int hash(int[] array){
+        return Arrays.hashCode(array);
+    }
+
+    // The finalizer from MurmurHash3 -> alternately multiplies by large odd constants and xor-shifts the high bits down,
+    // so a one bit change in the input flips about half of the output bits. It is a bijection (no two inputs give the
+    // same output), so it never adds collisions; it only spreads the hashCodes out.
+    static public int mix(int hash){
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+}
@@ -0,0 +1,168 @@
+package Equals;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+    Returns one CANONICAL instance for each distinct value (by equals and hashCode), like String.intern() does for
+    Strings -> this is the FLYWEIGHT pattern. A catalogue of millions of aliens with only a few thousand varieties then
+    holds only a few thousand Alien objects, and comparing two interned aliens with equals takes the this == object
+    fast path at the top of Alien.equals.
+    Only use it for IMMUTABLE objects (or ones which are never changed after being interned), such as Alien and
+    ImmutableAlien, since every caller shares the canonical instance, and its hashCode must never change.
+
+    The canonical instances are held by WEAK references, so a variety which nobody uses any more is garbage collected
+    rather than being kept forever (which is what a HashMap of them would do, ie. a memory leak). The garbage
+    collector puts each cleared reference on a ReferenceQueue, and the entries on it are removed on the next intern.
+
+    It is safe to use from many threads at once;
+        * The table is split into SEGMENTS (lock striping, as ConcurrentHashMap did before Java 8), chosen by the
+          high bits of the hash, so threads interning different values rarely need the same lock.
+        * Looking up a value which is already interned (the common case once the varieties have been seen) takes NO
+          lock -> the buckets are read through an AtomicReferenceArray and the chain links are volatile, so a reader
+          always sees fully constructed entries. If the lock free lookup misses (because the value is new, or because
+          the segment was being resized at the time), the lookup is repeated under the segment's lock before adding.
+ */
+public final class Interner<T> {
+
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    private final Segment<T>[] segments;
+    private final int segmentShift;
+
+    public Interner(){
+        this(4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    // concurrencyLevel is the number of threads expected to add values at the same time (rounded up to a power of 2).
+    @SuppressWarnings("unchecked")
+    public Interner(int concurrencyLevel){
+        if(concurrencyLevel <= 0) throw new IllegalArgumentException("Illegal concurrency level: " + concurrencyLevel);
+        int count = Integer.highestOneBit(Math.min(concurrencyLevel, 1 << 16) * 2 - 1);
+        segments = (Segment<T>[]) new Segment<?>[count];
+        for(int i = 0; i < count; i++) segments[i] = new Segment<>();
+        segmentShift = 32 - Integer.numberOfTrailingZeros(count);
+    }
+
+    // returns the canonical instance equal to value, making value the canonical instance if there is none.
+    public T intern(T value){
+        if(value == null) throw new NullPointerException("Cannot intern null");
+        int hash = Hash.mix(value.hashCode());
+        Segment<T> segment = segments[segmentShift == 32 ? 0 : hash >>> segmentShift];
+        T canonical = segment.find(value, hash);
+        return canonical != null ? canonical : segment.add(value, hash);
+    }
+
+    // the number of canonical instances, including any which have been garbage collected but not yet removed.
+    public int size(){
+        int size = 0;
+        for(Segment<T> segment : segments) size += segment.count;
+        return size;
+    }
+
+    // removes the entries of canonical instances which have been garbage collected -> intern does this as it goes, so
+    // this is only needed to make size() exact.
+    public void expungeStaleEntries(){
+        for(Segment<T> segment : segments){
+            segment.lock();
+            try {
+                segment.expungeStaleEntries();
+            } finally {
+                segment.unlock();
+            }
+        }
+    }
+
+    private static final class Entry<T> extends WeakReference<T> {
+        final int hash;
+        volatile Entry<T> next;
+
+        Entry(T value, int hash, Entry<T> next, ReferenceQueue<? super T> queue){
+            super(value, queue);
+            this.hash = hash;
+            this.next = next;
+        }
+    }
+
+    // a hash table with separate chaining, guarded by its own lock (a segment IS the lock, to save an object).
+    private static final class Segment<T> extends ReentrantLock {
+        private static final long serialVersionUID = 1L;
+        private final ReferenceQueue<T> queue = new ReferenceQueue<>();
+        private volatile AtomicReferenceArray<Entry<T>> table = new AtomicReferenceArray<>(16);
+        volatile int count;
+
+        // lock free -> may miss a value that is being added or moved by a resize, in which case add looks again.
+        T find(T value, int hash){
+            AtomicReferenceArray<Entry<T>> table = this.table;
+            for(Entry<T> entry = table.get(hash & (table.length() - 1)); entry != null; entry = entry.next){
+                if(entry.hash == hash){
+                    T candidate = entry.get();
+                    if(candidate != null && candidate.equals(value)) return candidate;
+                }
+            }
+            return null;
+        }
+
+        T add(T value, int hash){
+            lock();
+            try {
+                expungeStaleEntries();
+                T canonical = find(value, hash);
+                if(canonical != null) return canonical;
+                if(count >= table.length() - (table.length() >>> 2)) resize(); // load factor 3/4
+                AtomicReferenceArray<Entry<T>> table = this.table;
+                int index = hash & (table.length() - 1);
+                table.set(index, new Entry<>(value, hash, table.get(index), queue));
+                count++;
+                return value;
+            } finally {
+                unlock();
+            }
+        }
+
+        // called with the lock held.
+        @SuppressWarnings("unchecked")
+        void expungeStaleEntries(){
+            for(Entry<T> stale; (stale = (Entry<T>) queue.poll()) != null; ){
+                AtomicReferenceArray<Entry<T>> table = this.table;
+                int index = stale.hash & (table.length() - 1);
+                Entry<T> previous = null;
+                for(Entry<T> entry = table.get(index); entry != null; previous = entry, entry = entry.next){
+                    if(entry == stale){
+                        // unlinking leaves stale.next as it is, so a reader standing on stale can carry on down the chain.
+                        if(previous == null) table.set(index, entry.next);
+                        else previous.next = entry.next;
+                        count--;
+                        break;
+                    }
+                }
+            }
+        }
+
+        // called with the lock held -> the entries are moved to the new table (rather than copied), so lock free
+        // readers of the old table may miss some of them, but never see a half built entry.
+        private void resize(){
+            AtomicReferenceArray<Entry<T>> old = table;
+            if(old.length() >= MAXIMUM_CAPACITY) return;
+            AtomicReferenceArray<Entry<T>> resized = new AtomicReferenceArray<>(old.length() * 2);
+            int mask = resized.length() - 1;
+            for(int i = 0; i < old.length(); i++){
+                Entry<T> entry = old.get(i);
+                while(entry != null){
+                    Entry<T> next = entry.next;
+                    if(entry.get() == null){
+                        count--; // already collected -> drop it now, and ignore it when it is polled from the queue.
+                    } else {
+                        int index = entry.hash & mask;
+                        entry.next = resized.get(index);
+                        resized.set(index, entry);
+                    }
+                    entry = next;
+                }
+            }
+            table = resized;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package Equals;
+
+import BigO.Benchmark;
+
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.WeakHashMap;
+import java.util.function.UnaryOperator;
+
+/*
+    Ingests a catalogue of aliens drawn from a few thousand varieties (generated by AlienHashBenchmark.generate), and
+    reports;
+        retained heap       -> the heap used by the catalogue as an Alien[] of separate objects, and when each alien
+                               is replaced by its canonical instance from an Interner.
+        equals              -> Alien.equals between two equal aliens, when they are separate objects (every field is
+                               compared) and when they are interned (the this == object fast path).
+        ingest              -> the time to construct and intern every alien, on 1 to N threads at once, with Interner
+                               and with the usual single threaded approach made thread safe,
+                               Collections.synchronizedMap(new WeakHashMap<Alien, WeakReference<Alien>>()), whose one
+                               lock every thread has to queue for.
+        collected           -> the number of canonical instances left after every reference to them is dropped and the
+                               garbage collector has run, ie. that the interner does not leak.
+
+    Usage: java Equals.InternerBenchmark [number of aliens] [number of varieties]   (default 2,000,000 and 4,096)
+ */
+public class InternerBenchmark {
+
+    public static void main(String[] args) throws InterruptedException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int varietyCount = args.length > 1 ? Integer.parseInt(args[1]) : 4_096;
+        Random random = new Random(42);
+        AlienHashBenchmark.Record[] varieties = AlienHashBenchmark.generate(varietyCount, random);
+        AlienHashBenchmark.Record[] records = new AlienHashBenchmark.Record[count];
+        for(int i = 0; i < count; i++) records[i] = varieties[random.nextInt(varietyCount)];
+
+        Interner<Alien> interner = new Interner<>();
+        footprint(records, interner);
+
+        System.out.println();
+        System.out.println("INGEST (construct and intern every alien)");
+        System.out.println(String.format("%-22s%-24s%-24s", "Threads", "Interner", "synchronized WeakHashMap").trim());
+        int cores = Runtime.getRuntime().availableProcessors();
+        for(int threads = 1; ; threads = Math.min(threads * 2, cores)){
+            Benchmark.Result striped = ingest(records, threads, () -> new Interner<Alien>()::intern);
+            Benchmark.Result locked = ingest(records, threads, () -> {
+                Map<Alien, WeakReference<Alien>> map = Collections.synchronizedMap(new WeakHashMap<>());
+                return alien -> {
+                    synchronized(map){ // check and add atomically, as intern does.
+                        WeakReference<Alien> reference = map.get(alien);
+                        Alien canonical = reference == null ? null : reference.get();
+                        if(canonical != null) return canonical;
+                        map.put(alien, new WeakReference<>(alien));
+                        return alien;
+                    }
+                };
+            });
+            System.out.println(String.format("%-22d%-24s%-24s", threads, rate(striped, count), rate(locked, count)).trim());
+            if(threads == cores) break;
+        }
+
+        // nothing refers to the canonical aliens any more, except the interner's weak references.
+        interner.expungeStaleEntries();
+        int canonical = interner.size();
+        for(int i = 0; i < 5 && interner.size() > 0; i++){
+            System.gc();
+            Thread.sleep(50);
+            interner.expungeStaleEntries();
+        }
+        System.out.println();
+        System.out.printf("COLLECTED%n%,d varieties before, %,d after the references were dropped%n", canonical, interner.size());
+    }
+
+    // the retained heap and the equals time, with and without interning -> the aliens are only referenced from here, so
+    // they can be collected once it returns.
+    static void footprint(AlienHashBenchmark.Record[] records, Interner<Alien> interner){
+        int count = records.length;
+        long before = Benchmark.usedHeapAfterGc();
+        Alien[] separate = new Alien[count];
+        for(int i = 0; i < count; i++) separate[i] = records[i].newAlien();
+        long separateBytes = Benchmark.usedHeapAfterGc() - before;
+
+        before = Benchmark.usedHeapAfterGc();
+        Alien[] interned = new Alien[count];
+        for(int i = 0; i < count; i++) interned[i] = interner.intern(records[i].newAlien());
+        long internedBytes = Benchmark.usedHeapAfterGc() - before;
+
+        System.out.printf("%,d aliens, %,d varieties%n%n", count, interner.size());
+        System.out.println("RETAINED HEAP");
+        System.out.printf("%-22s%.1fMB (%s per alien)%n", "separate", separateBytes / 1e6,
+                Benchmark.formatBytes((double) separateBytes / count));
+        System.out.printf("%-22s%.1fMB (%s per alien)%n", "interned", internedBytes / 1e6,
+                Benchmark.formatBytes((double) internedBytes / count));
+
+        // pairs of equal aliens, ie. alien i and a later alien of the same variety.
+        int pairs = 1 << 12;
+        int[] first = new int[pairs];
+        int[] second = new int[pairs];
+        Map<Alien, Integer> seen = new HashMap<>();
+        for(int i = 0, found = 0; i < count && found < pairs; i++){
+            Integer earlier = seen.putIfAbsent(separate[i], i);
+            if(earlier != null){
+                first[found] = earlier;
+                second[found++] = i;
+            }
+        }
+        System.out.println();
+        System.out.println("EQUALS");
+        System.out.printf("%-22s%s%n", "separate", Benchmark.measure(i -> separate[first[i & (pairs - 1)]]
+                .equals(separate[second[i & (pairs - 1)]]) ? 1 : 0));
+        System.out.printf("%-22s%s%n", "interned", Benchmark.measure(i -> interned[first[i & (pairs - 1)]]
+                .equals(interned[second[i & (pairs - 1)]]) ? 1 : 0));
+    }
+
+    interface Factory {
+        UnaryOperator<Alien> newInterner();
+    }
+
+    // one operation is a whole ingest into a new interner, with each thread taking its own slice of the records.
+    static Benchmark.Result ingest(AlienHashBenchmark.Record[] records, int threads, Factory factory){
+        return Benchmark.measure(() -> {
+            UnaryOperator<Alien> intern = factory.newInterner();
+            return i -> {
+                Thread[] workers = new Thread[threads];
+                long[] checksums = new long[threads];
+                for(int t = 0; t < threads; t++){
+                    int thread = t;
+                    workers[t] = new Thread(() -> {
+                        long checksum = 0;
+                        for(int r = thread; r < records.length; r += threads){
+                            checksum += System.identityHashCode(intern.apply(records[r].newAlien()));
+                        }
+                        checksums[thread] = checksum;
+                    });
+                    workers[t].start();
+                }
+                long checksum = 0;
+                for(int t = 0; t < threads; t++){
+                    try {
+                        workers[t].join();
+                    } catch(InterruptedException e){
+                        throw new IllegalStateException(e);
+                    }
+                    checksum += checksums[t];
+                }
+                return checksum;
+            };
+        }, 1);
+    }
+
+    static String rate(Benchmark.Result result, int count){
+        return String.format("%s (%.1fM/s)", Benchmark.formatNanos(result.nanosPerOp()), count / result.nanosPerOp() * 1e3);
+    }
+}
@@ -0,0 +1,116 @@
+package Equals;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/*
+    A growable column of ints packed into as few bits each as the largest value needs, stored OFF HEAP
+    (in a direct ByteBuffer, which the garbage collector neither scans nor moves), eg. values 0 to 12 take 4 bits each,
+    so 16 of them fit in one long. A bit width of 1 makes it a bitset.
+    When a value is added that needs more bits, the whole column is repacked at the new width -> since the width can only
+    grow up to 32, this happens at most 32 times, so the cost is amortized like the doubling of an ArrayList.
+    The ints are treated as UNSIGNED, so a negative int needs all 32 bits -> values which may be negative should be
+    zigzag encoded first (see zigzag), so that small negative numbers also take few bits.
+ */
+final class PackedColumn {
+
+    // the most longs a direct ByteBuffer can hold -> the column grows by doubling up to this, then fails (see allocate).
+    private static final long MAX_LONGS = Integer.MAX_VALUE / Long.BYTES;
+
+    private LongBuffer words;
+    private int bitWidth;
+    private int size;
+
+    PackedColumn(int bitWidth){
+        if(bitWidth < 1 || bitWidth > 32) throw new IllegalArgumentException("Illegal bit width: " + bitWidth);
+        this.bitWidth = bitWidth;
+        this.words = allocate(16);
+    }
+
+    int size(){
+        return size;
+    }
+
+    int bitWidth(){
+        return bitWidth;
+    }
+
+    // the off heap memory used, in bytes.
+    long capacityBytes(){
+        return (long) words.capacity() * Long.BYTES;
+    }
+
+    int get(int index){
+        if(index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        return read(words, bitWidth, index);
+    }
+
+    void add(int value){
+        int needed = 32 - Integer.numberOfLeadingZeros(value);
+        if(needed > bitWidth) repack(needed);
+        long bit = (long) size * bitWidth;
+        int word = (int) (bit >>> 6);
+        if(word + 1 >= words.capacity()) words = copy(words, Math.max(word + 2L, Math.min(2L * words.capacity(), MAX_LONGS)));
+        write(words, bitWidth, size, value);
+        size++;
+    }
+
+    // maps ints of small magnitude to small non-negative ints, ie. 0 -> 0, -1 -> 1, 1 -> 2, -2 -> 3, ...
+    static int zigzag(int value){
+        return (value << 1) ^ (value >> 31);
+    }
+
+    static int unzigzag(int value){
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private void repack(int bitWidth){
+        long bits = (long) Math.max(size, 1) * bitWidth;
+        long needed = (bits >>> 6) + 2;
+        LongBuffer repacked = allocate(Math.max(needed, Math.min(Math.max(16, 2 * needed), MAX_LONGS)));
+        for(int i = 0; i < size; i++) write(repacked, bitWidth, i, read(words, this.bitWidth, i));
+        this.words = repacked;
+        this.bitWidth = bitWidth;
+    }
+
+    // a value may straddle two longs, in which case its low bits are at the top of the first and its high bits at the
+    // bottom of the second.
+    private static int read(LongBuffer words, int bitWidth, int index){
+        long bit = (long) index * bitWidth;
+        int word = (int) (bit >>> 6);
+        int shift = (int) (bit & 63);
+        long value = words.get(word) >>> shift;
+        if(shift + bitWidth > 64) value |= words.get(word + 1) << (64 - shift);
+        return (int) (value & ((1L << bitWidth) - 1));
+    }
+
+    // only ever writes into zeroed bits, since the column is append only.
+    private static void write(LongBuffer words, int bitWidth, int index, int value){
+        long bit = (long) index * bitWidth;
+        int word = (int) (bit >>> 6);
+        int shift = (int) (bit & 63);
+        long unsigned = value & 0xFFFFFFFFL;
+        words.put(word, words.get(word) | (unsigned << shift));
+        if(shift + bitWidth > 64) words.put(word + 1, words.get(word + 1) | (unsigned >>> (64 - shift)));
+    }
+
+    // the size is worked out as a long -> as an int, longs * Long.BYTES would overflow (and go negative, or wrap to a
+    // small buffer) for columns of 2GB or more, which a direct ByteBuffer cannot hold anyway.
+    private static LongBuffer allocate(long longs){
+        long bytes = longs * Long.BYTES;
+        if(bytes > Integer.MAX_VALUE){
+            throw new IllegalStateException("PackedColumn too large: " + bytes + " bytes needed, but a direct ByteBuffer holds at most "
+                    + Integer.MAX_VALUE);
+        }
+        return ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder()).asLongBuffer();
+    }
+
+    // the old buffer's memory is freed when the garbage collector collects the buffer object.
+    private static LongBuffer copy(LongBuffer words, long longs){
+        LongBuffer copy = allocate(longs);
+        words.rewind();
+        copy.put(words);
+        return copy;
+    }
+}
@@ -0,0 +1,262 @@
+package Equals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+import static Equals.Hash.mix;
+
+/*
+    Groups a large number of objects (eg. a catalogue of aliens) into VARIETIES, ie. groups of objects which are equal
+    to each other. A group of more than one object is a set of duplicates.
+
+    Comparing every object with every other, as Equal.main compares a few aliens, takes O(n^2) calls of equals. Instead
+    the objects are grouped by hashCode, which takes O(n) -> equal objects have equal hashCodes, so only objects with
+    the same hashCode need to be compared with equals (which confirms every match, since different objects can share
+    a hashCode). It is done in parallel, in three steps;
+        1) HASH         -> the objects are split into chunks of CHUNK, and each task hashes a chunk and counts how many
+                           of its objects fall in each PARTITION (a range of hashCodes).
+        2) PARTITION    -> from the counts each chunk knows where its objects of each partition go, so each task can
+                           copy the indexes of its objects into one array, ordered by partition, without locking (ie. a
+                           parallel counting sort).
+        3) GROUP        -> each partition is grouped by its own task, in a hash table of its own. Equal objects are in
+                           the same partition, so the partitions are independent, and nothing is shared between tasks.
+    There are several partitions per thread, so that a thread which finishes early can take another, and each is small
+    enough for its hash table to fit in the processor's cache, which makes the grouping faster even on one thread.
+
+    The STREAMING version groups a source too large to hold in memory at once (eg. a file of aliens read one at a time)
+    -> the caller gives the most objects to hold at a time (maxItems) rather than a number of passes, since that is what
+    the memory limits. It first reads the source once to count the objects in each of RANGES equal ranges of hashCodes,
+    then packs consecutive ranges into as few PASSES as keep each under maxItems. Each pass reads the source again,
+    keeping only the objects whose hashCode falls in that pass's ranges, groups them as above, and hands each group to a
+    Consumer before the next pass. So the source is read 1 + passes times, where passes is about objects / maxItems.
+    A pass can hold more than maxItems only if one range alone has more -> eg. a variety with more than maxItems
+    objects, which has to be held at once to be grouped.
+
+    Either version can be asked for the duplicates only, ie. the groups of more than one object -> the others are then
+    never made into lists, which matters when most objects are unique.
+
+    Null objects are not allowed. The objects must not change while they are grouped (as for the keys of a HashMap).
+ */
+public final class Varieties {
+
+    // the number of objects hashed by one task.
+    static final int CHUNK = 1 << 14;
+    // the number of objects per partition to aim for, so that the partition's hash table fits in the cache.
+    static final int PARTITION = 1 << 15;
+    // the number of ranges of hashCodes counted by the streaming version, to decide its passes.
+    static final int RANGES = 1 << 16;
+
+    private Varieties(){
+    }
+
+    // the groups of equal objects in items, in no particular order; the objects in each group are in the order of items.
+    public static <T> List<List<T>> group(T[] items){
+        return group(items, ForkJoinPool.commonPool());
+    }
+
+    public static <T> List<List<T>> group(T[] items, ForkJoinPool pool){
+        return group(items, false, pool);
+    }
+
+    // duplicatesOnly -> only the groups of more than one object.
+    public static <T> List<List<T>> group(T[] items, boolean duplicatesOnly, ForkJoinPool pool){
+        int partitions = Math.max(4 * pool.getParallelism(), (items.length + PARTITION - 1) / PARTITION);
+        Grouping<T> grouping = new Grouping<>(items, partitions, duplicatesOnly);
+        pool.invoke(grouping);
+        List<List<T>> groups = new ArrayList<>();
+        for(List<List<T>> partition : grouping.groups) groups.addAll(partition);
+        return groups;
+    }
+
+    // the streaming version -> see the comment at the top. source must give the same objects every time it is iterated.
+    // returns the number of passes it took (not counting the first, which counts the objects).
+    public static <T> int group(Iterable<? extends T> source, int maxItems, boolean duplicatesOnly, Consumer<? super List<T>> sink){
+        return group(source, maxItems, duplicatesOnly, ForkJoinPool.commonPool(), sink);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> int group(Iterable<? extends T> source, int maxItems, boolean duplicatesOnly, ForkJoinPool pool,
+                                Consumer<? super List<T>> sink){
+        if(maxItems < 1) throw new IllegalArgumentException("maxItems must be at least 1: " + maxItems);
+        int[] passOf = passes(source, maxItems);
+        int passes = passOf.length == 0 ? 0 : passOf[RANGES - 1] + 1;
+        for(int pass = 0; pass < passes; pass++){
+            List<T> items = new ArrayList<>();
+            for(T item : source){
+                if(passOf[range(item)] == pass) items.add(item);
+            }
+            for(List<T> group : group((T[]) items.toArray(), duplicatesOnly, pool)) sink.accept(group);
+        }
+        return passes;
+    }
+
+    // the pass of each range of hashCodes -> consecutive ranges, starting a new pass whenever the next range would take
+    // the current one over maxItems. Empty if source is.
+    static int[] passes(Iterable<?> source, int maxItems){
+        int[] counts = new int[RANGES];
+        long total = 0;
+        for(Object item : source){
+            counts[range(item)]++;
+            total++;
+        }
+        if(total == 0) return new int[0];
+        int[] passOf = new int[RANGES];
+        int pass = 0;
+        long held = 0;
+        for(int range = 0; range < RANGES; range++){
+            if(held > 0 && held + counts[range] > maxItems){
+                pass++;
+                held = 0;
+            }
+            held += counts[range];
+            passOf[range] = pass;
+        }
+        return passOf;
+    }
+
+    // mix a second time -> the partitions and hash tables of group use the bits of the first mix, and the objects of one
+    // pass would otherwise all fall into a few of its partitions.
+    private static int range(Object item){
+        return slice(mix(mix(item.hashCode())), RANGES);
+    }
+
+    // which of count equal ranges of hashCodes hash falls in -> taken from the high bits (the hash tables use the low).
+    static int slice(int hash, int count){
+        return (int) ((hash & 0xFFFFFFFFL) * count >>> 32);
+    }
+
+    private static final class Grouping<T> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final T[] items;
+        private final int partitions;
+        private final int[] hashes;
+        // counts[chunk][partition] -> the number of objects of the chunk in the partition, then (after compute turns it
+        // into offsets) where the chunk's next object of the partition goes in order.
+        private final int[][] counts;
+        // the indexes of the objects, by partition -> partition p is order[starts[p]] to order[starts[p + 1] - 1].
+        private final int[] order;
+        private final int[] starts;
+        private final List<List<T>>[] groups;
+        private final boolean duplicatesOnly;
+
+        @SuppressWarnings("unchecked")
+        Grouping(T[] items, int partitions, boolean duplicatesOnly){
+            this.items = items;
+            this.partitions = partitions;
+            this.duplicatesOnly = duplicatesOnly;
+            this.hashes = new int[items.length];
+            this.counts = new int[(items.length + CHUNK - 1) / CHUNK][partitions];
+            this.order = new int[items.length];
+            this.starts = new int[partitions + 1];
+            this.groups = (List<List<T>>[]) new List<?>[partitions];
+        }
+
+        @Override
+        protected void compute(){
+            RecursiveAction[] chunks = new RecursiveAction[counts.length];
+            for(int chunk = 0; chunk < counts.length; chunk++){
+                int from = chunk * CHUNK;
+                int to = Math.min(from + CHUNK, items.length);
+                int[] count = counts[chunk];
+                chunks[chunk] = action(() -> {
+                    for(int i = from; i < to; i++){
+                        int hash = mix(items[i].hashCode());
+                        hashes[i] = hash;
+                        count[slice(hash, partitions)]++;
+                    }
+                });
+            }
+            invokeAll(chunks);
+
+            // the offsets -> the partitions one after another, and within each the chunks one after another.
+            int offset = 0;
+            for(int partition = 0; partition < partitions; partition++){
+                starts[partition] = offset;
+                for(int[] count : counts){
+                    int objects = count[partition];
+                    count[partition] = offset;
+                    offset += objects;
+                }
+            }
+            starts[partitions] = offset;
+
+            for(int chunk = 0; chunk < counts.length; chunk++){
+                int from = chunk * CHUNK;
+                int to = Math.min(from + CHUNK, items.length);
+                int[] next = counts[chunk];
+                chunks[chunk] = action(() -> {
+                    for(int i = from; i < to; i++) order[next[slice(hashes[i], partitions)]++] = i;
+                });
+            }
+            invokeAll(chunks);
+
+            RecursiveAction[] tasks = new RecursiveAction[partitions];
+            for(int partition = 0; partition < partitions; partition++){
+                int p = partition;
+                tasks[partition] = action(() -> groups[p] = groupPartition(starts[p], starts[p + 1]));
+            }
+            invokeAll(tasks);
+        }
+
+        // groups the objects order[from] to order[to - 1] in an open addressing hash table -> table holds 1 + the
+        // number of a group (0 for an empty slot), and a collision moves on to the next slot.
+        private List<List<T>> groupPartition(int from, int to){
+            int size = to - from;
+            int mask = Integer.highestOneBit(Math.max(1, size) * 2 - 1) * 2 - 1; // at most half full.
+            int[] table = new int[mask + 1];
+            int[] first = new int[size]; // the index of the first object of each group.
+            int[] groupSizes = new int[size];
+            int[] groupOf = new int[size];
+            int groupCount = 0;
+            for(int position = from; position < to; position++){
+                int index = order[position];
+                int hash = hashes[index];
+                int slot = hash & mask;
+                while(true){
+                    int group = table[slot] - 1;
+                    if(group < 0){
+                        group = groupCount++;
+                        table[slot] = group + 1;
+                        first[group] = index;
+                    } else if(hashes[first[group]] != hash || !items[first[group]].equals(items[index])){
+                        slot = (slot + 1) & mask;
+                        continue;
+                    }
+                    groupSizes[group]++;
+                    groupOf[position - from] = group;
+                    break;
+                }
+            }
+            // the list of each group, by its number (null for a single object when duplicatesOnly).
+            List<T>[] lists = newLists(groupCount);
+            List<List<T>> partition = new ArrayList<>(groupCount);
+            for(int group = 0; group < groupCount; group++){
+                if(duplicatesOnly && groupSizes[group] == 1) continue;
+                lists[group] = new ArrayList<>(groupSizes[group]);
+                partition.add(lists[group]);
+            }
+            for(int position = from; position < to; position++){
+                List<T> list = lists[groupOf[position - from]];
+                if(list != null) list.add(items[order[position]]);
+            }
+            return partition;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> List<T>[] newLists(int count){
+            return (List<T>[]) new List<?>[count];
+        }
+    }
+
+    private static RecursiveAction action(Runnable body){
+        return new RecursiveAction() {
+            @Override
+            protected void compute(){
+                body.run();
+            }
+        };
+    }
+}
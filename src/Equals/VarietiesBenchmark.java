@@ -0,0 +1,104 @@
+package Equals;
+
+import BigO.Benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/*
+    Groups a catalogue of aliens into varieties (see Varieties), each alien a separate object, so that equals has to
+    compare every field of equal aliens. Reports the time for the whole catalogue, and the throughput in aliens per
+    second, for;
+        HashMap                         -> map.computeIfAbsent(alien, new list).add(alien), on one thread.
+        parallel stream                 -> Arrays.stream(aliens).parallel().collect(Collectors.groupingByConcurrent(..)),
+                                           ie. every thread adding to one ConcurrentHashMap.
+        Varieties, N cores              -> Varieties.group on a pool of 1 to N threads.
+        Varieties, streaming, 1/k       -> the streaming version, holding at most 1/k of the aliens at a time (the
+                                           number of passes it took is shown after the name).
+        ..., duplicates only            -> the same, asking for the groups of more than one alien only.
+    Alien caches its hashCode, so after the first run only equals is measured (as for aliens which have been hashed
+    before, eg. on the way in).
+
+    Usage: java Equals.VarietiesBenchmark [number of aliens] [number of varieties]   (default 4,000,000 and 1,000,000)
+ */
+public class VarietiesBenchmark {
+
+    public static void main(String[] args){
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 4_000_000;
+        int varietyCount = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        Random random = new Random(42);
+        AlienHashBenchmark.Record[] varieties = AlienHashBenchmark.generate(varietyCount, random);
+        Alien[] aliens = new Alien[count];
+        for(int i = 0; i < count; i++) aliens[i] = varieties[random.nextInt(varietyCount)].newAlien();
+
+        Map<Alien, List<Alien>> expected = new HashMap<>();
+        for(Alien alien : aliens) expected.computeIfAbsent(alien, key -> new ArrayList<>()).add(alien);
+        check(Varieties.group(aliens), expected);
+        List<List<Alien>> streamed = new ArrayList<>();
+        Varieties.group(Arrays.asList(aliens), count / 4, false, streamed::add);
+        check(streamed, expected);
+        List<List<Alien>> duplicateGroups = new ArrayList<>();
+        Varieties.group(Arrays.asList(aliens), count / 4, true, duplicateGroups::add);
+        expected.values().removeIf(group -> group.size() == 1);
+        check(duplicateGroups, expected);
+        long duplicates = expected.size();
+        System.out.printf("%,d aliens, %,d varieties (%,d with duplicates)%n%n", count, streamed.size(), duplicates);
+        expected.clear();
+
+        System.out.println(String.format("%-58s%-24s", "Method", "time (throughput)").trim());
+        row("HashMap, 1 thread", Benchmark.measure(i -> {
+            Map<Alien, List<Alien>> groups = new HashMap<>();
+            for(Alien alien : aliens) groups.computeIfAbsent(alien, key -> new ArrayList<>()).add(alien);
+            return groups.size();
+        }, 1), count);
+        row("parallel stream", Benchmark.measure(i -> Arrays.stream(aliens).parallel()
+                .collect(Collectors.groupingByConcurrent(Function.identity())).size(), 1), count);
+        int cores = Runtime.getRuntime().availableProcessors();
+        for(int parallelism = 1; ; parallelism = Math.min(parallelism * 2, cores)){
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                row("Varieties, " + parallelism + (parallelism == 1 ? " core" : " cores"),
+                        Benchmark.measure(i -> Varieties.group(aliens, pool).size(), 1), count);
+            } finally {
+                pool.shutdown();
+            }
+            if(parallelism == cores) break;
+        }
+        List<Alien> source = Arrays.asList(aliens);
+        for(int fraction : new int[]{1, 4, 16}){
+            for(boolean duplicatesOnly : new boolean[]{false, true}){
+                int[] passes = new int[1];
+                Benchmark.Result result = Benchmark.measure(i -> {
+                    long[] groups = new long[1];
+                    passes[0] = Varieties.group(source, Math.max(1, count / fraction), duplicatesOnly, group -> groups[0]++);
+                    return groups[0];
+                }, 1);
+                row("Varieties, streaming, 1/" + fraction + " (" + passes[0] + (passes[0] == 1 ? " pass)" : " passes)")
+                        + (duplicatesOnly ? ", duplicates only" : ""), result, count);
+            }
+        }
+    }
+
+    // each group must be exactly the aliens that the HashMap grouped together, in the same order.
+    static void check(List<List<Alien>> groups, Map<Alien, List<Alien>> expected){
+        if(groups.size() != expected.size()) throw new IllegalStateException(groups.size() + " groups, expected " + expected.size());
+        for(List<Alien> group : groups){
+            List<Alien> other = expected.get(group.get(0));
+            if(other == null || other.size() != group.size()) throw new IllegalStateException("Wrong group for " + group.get(0));
+            for(int i = 0; i < group.size(); i++){
+                if(group.get(i) != other.get(i)) throw new IllegalStateException("Wrong group for " + group.get(0));
+            }
+        }
+    }
+
+    static void row(String name, Benchmark.Result result, int count){
+        System.out.println(String.format("%-58s%-24s", name, InternerBenchmark.rate(result, count)).trim());
+    }
+}
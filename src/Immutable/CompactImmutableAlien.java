@@ -0,0 +1,111 @@
+package Immutable;
+
+import java.time.Instant;
+
+import static Equals.Equal.equal;
+import static Equals.Hash.MULTIPLIER;
+import static Equals.Hash.hash;
+import static Equals.Hash.mix;
+
+/*
+    The same alien as ImmutableAlien, rewritten so that none of its methods allocate, for code which calls them in
+    tight loops (ImmutableAlien is the one to read first, for how to make a class immutable);
+        1) The date of discovery is stored as a primitive long (milliseconds since the epoch, as Date.getTime() gives)
+           rather than as a Date. Date is mutable, so ImmutableAlien has to return a NEW defensive copy from every call
+           of getDateOfDiscovery(). A long is a value, so it can be returned as it is.
+        2) The number of eyes is a primitive int rather than an Integer, so reading it is a single field load rather
+           than a load of the Integer object and then of its value (and there is no boxing in the constructor).
+        3) The hashCode is cached with the "racy single check" idiom that String.hashCode uses;
+              * The cache is an ordinary (NOT volatile) field. This is safe because every field the hash is computed
+                from is final, so every thread computes the same value, and an int is written atomically -> the worst a
+                race can do is make two threads both compute it. A volatile read is cheap on x86, but stops the JIT
+                from keeping the cached value in a register or hoisting the read out of a loop.
+              * The value is read into a local variable ONCE, since a second read of a racy field may see a different
+                (ie. uncomputed) value than the first.
+              * A separate hashIsZero flag records that the hash has been computed and is really 0. ImmutableAlien uses
+                0 to mean "not yet computed", so an alien whose hash is 0 is recomputed on every call.
+    The benchmark in CompactImmutableAlienBenchmark measures both classes, including an alien whose hash is 0.
+ */
+public final class CompactImmutableAlien {
+
+    private final long discoveredAtMillis;
+    private final String colour;
+    private final int numberOfEyes;
+    // the cached hashCode, and whether it has been computed and is 0 -> see 3) above for why these are not volatile.
+    // transient marks them as derived state, as in Alien and ImmutableAlien, so that Equals.EquivalenceGenerator skips
+    // them -> otherwise an alien which had cached its hashCode would not equal one which had not.
+    private transient int hashCode;
+    private transient boolean hashIsZero;
+
+    public CompactImmutableAlien(long discoveredAtMillis, String colour, int numberOfEyes){
+        this.discoveredAtMillis = discoveredAtMillis;
+        this.colour = colour;
+        this.numberOfEyes = numberOfEyes;
+    }
+
+    public CompactImmutableAlien(Instant dateOfDiscovery, String colour, int numberOfEyes){
+        this(dateOfDiscovery.toEpochMilli(), colour, numberOfEyes);
+    }
+
+    public CompactImmutableAlien(ImmutableAlien alien){
+        this(alien.getDateOfDiscovery().getTime(), alien.getColour(), alien.getNumberOfEyes());
+    }
+
+    //NO SETTERS
+
+    // milliseconds since the epoch -> a primitive, so no defensive copy is needed.
+    public long getDiscoveredAtMillis(){
+        return discoveredAtMillis;
+    }
+
+    // NOTE: this creates an Instant on each call (although the JIT can often remove it if it does not escape the
+    // caller) -> use getDiscoveredAtMillis in hot loops.
+    public Instant getDateOfDiscovery(){
+        return Instant.ofEpochMilli(discoveredAtMillis);
+    }
+
+    public String getColour(){
+        return colour;
+    }
+
+    public int getNumberOfEyes(){
+        return numberOfEyes;
+    }
+
+    @Override
+    public boolean equals(Object object){
+        if(this == object) return true;
+        if(!(object instanceof CompactImmutableAlien)) return false;
+        CompactImmutableAlien alien = (CompactImmutableAlien) object;
+        return equal(numberOfEyes, alien.numberOfEyes) && equal(discoveredAtMillis, alien.discoveredAtMillis)
+                && equal(colour, alien.colour);
+    }
+
+    @Override
+    public int hashCode(){
+        int hashCode = this.hashCode; // read the racy field once only.
+        if(hashCode == 0 && !hashIsZero){
+            hashCode = computeHashCode();
+            if(hashCode == 0){
+                hashIsZero = true;
+            } else {
+                this.hashCode = hashCode;
+            }
+        }
+        return hashCode;
+    }
+
+    // as in class Alien -> see there for the steps.
+    private int computeHashCode(){
+        int result = 17;
+        result = MULTIPLIER * result + hash(discoveredAtMillis);
+        result = MULTIPLIER * result + hash(colour);
+        result = MULTIPLIER * result + hash(numberOfEyes);
+        return mix(result);
+    }
+
+    @Override
+    public String toString(){
+        return "CompactImmutableAlien{" + getDateOfDiscovery() + ", " + colour + ", " + numberOfEyes + " eyes}";
+    }
+}
@@ -0,0 +1,78 @@
+package Immutable;
+
+import BigO.Benchmark;
+import Equals.Hash;
+
+import java.util.Date;
+
+/*
+    Times the accessors and hashCode of ImmutableAlien and CompactImmutableAlien, with the bytes allocated per call
+    (B/op, from the JVM's per-thread allocation counter) -> the hot path of CompactImmutableAlien should allocate 0B.
+        date of discovery   -> ImmutableAlien.getDateOfDiscovery() returns a new defensive copy of its Date, and
+                               CompactImmutableAlien.getDiscoveredAtMillis() returns a long. The Date is passed to
+                               Benchmark.consume, as a caller that keeps it would, so that the JIT cannot remove it.
+        eyes                -> getNumberOfEyes(), which unboxes an Integer field in ImmutableAlien.
+        hashCode            -> on aliens whose hashCode has already been cached.
+        hashCode (zero)     -> on an alien whose hash is 0. ImmutableAlien takes 0 to mean "not computed", so it
+                               computes the hash again on every call, whereas CompactImmutableAlien remembers it in the
+                               hashIsZero flag.
+
+    Usage: java Immutable.CompactImmutableAlienBenchmark
+ */
+public class CompactImmutableAlienBenchmark {
+
+    static final int ALIENS = 1 << 10;
+
+    public static void main(String[] args){
+        ImmutableAlien[] aliens = new ImmutableAlien[ALIENS];
+        CompactImmutableAlien[] compacts = new CompactImmutableAlien[ALIENS];
+        for(int i = 0; i < ALIENS; i++){
+            aliens[i] = new ImmutableAlien(new Date(1_400_000_000_000L + i * 86_400_000L), i % 2 == 0 ? "purple" : "green", 1 + i % 12);
+            compacts[i] = new CompactImmutableAlien(aliens[i]);
+        }
+        ImmutableAlien zero = zeroHash(new Date(1_434_758_400_000L), "purple");
+        CompactImmutableAlien compactZero = compactZeroHash("purple", 6);
+        System.out.printf("hashCodes of the zero hash aliens: %d and %d%n%n", zero.hashCode(), compactZero.hashCode());
+
+        int mask = ALIENS - 1;
+        System.out.println(String.format("%-22s%-26s%-26s", "Call", "ImmutableAlien", "CompactImmutableAlien").trim());
+        row("date of discovery",
+                Benchmark.measure(i -> {
+                    Date date = aliens[i & mask].getDateOfDiscovery();
+                    Benchmark.consume(date);
+                    return date.getTime();
+                }),
+                Benchmark.measure(i -> compacts[i & mask].getDiscoveredAtMillis()));
+        row("eyes",
+                Benchmark.measure(i -> aliens[i & mask].getNumberOfEyes()),
+                Benchmark.measure(i -> compacts[i & mask].getNumberOfEyes()));
+        row("hashCode",
+                Benchmark.measure(i -> aliens[i & mask].hashCode()),
+                Benchmark.measure(i -> compacts[i & mask].hashCode()));
+        row("hashCode (zero)",
+                Benchmark.measure(i -> zero.hashCode()),
+                Benchmark.measure(i -> compactZero.hashCode()));
+    }
+
+    static void row(String name, Benchmark.Result immutable, Benchmark.Result compact){
+        System.out.println(String.format("%-22s%-26s%-26s", name, immutable, compact).trim());
+    }
+
+    // ImmutableAlien.hashCode is 17 * (17 * (17 * 3 + date) + colour) + eyes, so choose the eyes that make it 0.
+    static ImmutableAlien zeroHash(Date date, String colour){
+        int eyes = -17 * (17 * (17 * 3 + date.hashCode()) + colour.hashCode());
+        return new ImmutableAlien(date, colour, eyes);
+    }
+
+    // CompactImmutableAlien's hash is mix(M * (M * (M * 17 + millis) + colour) + eyes) for M = Hash.MULTIPLIER, and
+    // mix(0) == 0, so solve for the millis that make the inner sum 0 -> M is odd, so it has an inverse modulo 2^32.
+    static CompactImmutableAlien compactZeroHash(String colour, int eyes){
+        int m = Hash.MULTIPLIER;
+        int inverse = m;
+        for(int i = 0; i < 5; i++) inverse *= 2 - m * inverse; // Newton's method, doubling the correct bits each time.
+        int afterColour = -Hash.hash(eyes) * inverse;
+        int afterMillis = (afterColour - Hash.hash(colour)) * inverse;
+        long millis = (afterMillis - m * 17) & 0xFFFFFFFFL; // below 2^32, so Hash.hash(millis) is just its low int.
+        return new CompactImmutableAlien(millis, colour, eyes);
+    }
+}
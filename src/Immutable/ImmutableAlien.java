@@ -1,7 +1,11 @@
 package Immutable;
 
+import Equals.EqualsMetrics;
+
 import java.util.Date;
 
+import static Equals.Equal.equal;
+
 /**
  * Created by Jo on 20/06/2015.
  */
@@ -29,7 +33,10 @@ public final class ImmutableAlien {
     // cache the hashCode after it has first been calculated.
     // this field cannot be declared as final since it is lazily evaluated, ie. initially is = 0, and once calculated its value is assigned, therefore its value changes (NOT final).
     // instead hashCode is declared volatile to aid concurrency -> it acts like synchronized.
-    private volatile int hashCode = 0;
+    private transient volatile int hashCode = 0;
+    // the counts recorded by instrumentedHashCode below (see Equals.EqualsMetrics).
+    private static final EqualsMetrics.Counters METRICS = EqualsMetrics.ENABLED ? EqualsMetrics.counters(ImmutableAlien.class,
+            "numberOfEyes", "colour", "dateOfDiscovery") : null;
 
     public ImmutableAlien(Date dateOfDiscovery, String colour, Integer numberOfEyes){
         // make a new copy of Date since it is mutable and we don't want it to change.
@@ -56,13 +63,29 @@ public final class ImmutableAlien {
         return numberOfEyes;
     }
 
+    // equals must be overridden along with hashCode (see class Alien in package Equals) -> otherwise two aliens discovered
+    // on the same date with the same colour and eyes would not be equal, and could not be interned (see Equals.Interner).
+    // the class is final, so instanceof cannot break symmetry with a subclass.
+    @Override
+    public boolean equals(Object object){
+        if(this == object) return true;
+        if(!(object instanceof ImmutableAlien)) return false;
+        ImmutableAlien alien = (ImmutableAlien) object;
+        return equal(numberOfEyes, alien.numberOfEyes) && equal(colour, alien.colour) && equal(dateOfDiscovery, alien.dateOfDiscovery);
+    }
+
     //lazy initialization of hashCode (ie, initially not calculated until it is requested)
     //and caching of the hashCode so that it is only ever calculated once (to increase performance) -> note hashCode is cached as a private volatile field.
     @Override
     public int hashCode(){
+        if(EqualsMetrics.ENABLED) return instrumentedHashCode();
         //if hashCode != 0 then it has already been calculated and cached (as the variable hashCode), so return the cached result.
         if(hashCode != 0) return hashCode;
         //else calculate the hasCode and cache it.
+        return computeHashCode();
+    }
+
+    private int computeHashCode(){
         int hash = 17;
         int result = 3;
         result = hash * result + dateOfDiscovery.hashCode(); //note date cannot be null.
@@ -71,4 +94,16 @@ public final class ImmutableAlien {
         hashCode = result; //cache in the field hashCode.
         return result;
     }
+
+    //the same as hashCode, recording whether the cached hashCode was returned, and the time taken to calculate it.
+    private int instrumentedHashCode(){
+        if(hashCode != 0){
+            EqualsMetrics.hashCodeCached(METRICS);
+            return hashCode;
+        }
+        long start = EqualsMetrics.startHashCode();
+        int result = computeHashCode();
+        EqualsMetrics.hashCodeComputed(METRICS, start);
+        return result;
+    }
 }
@@ -0,0 +1,233 @@
+package Immutable;
+
+import BigO.Benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+    Compares the persistent collections with the usual ways of sharing a collection between threads;
+        copy-on-write   -> each update copies the whole ArrayList or HashMap, changes the copy, and publishes it
+                           through a volatile field (CopyOnWriteArrayList does this internally) -> readers need no lock.
+        unmodifiable    -> Collections.unmodifiableList/Map around a Collections.synchronizedList/Map, which the writer
+                           updates in place -> no copying, but every read has to take the lock, since the wrapper is
+                           only a read only VIEW of a collection which is still changing.
+        persistent      -> PersistentVector / PersistentHashMap, each update making a new version in O(log32 n) and
+                           publishing it through a volatile field -> readers need no lock.
+
+    UPDATES     -> the time (and garbage) for one update of a collection of n elements, and for loading n elements;
+                   with a Builder, by repeated plus, and into an ArrayList/HashMap for comparison.
+    CONCURRENT  -> one writer thread updating as fast as it can, while the other cores read random elements; reported
+                   as reads and updates per second.
+
+    Usage: java Immutable.PersistentCollectionBenchmark [sizes...]   (default 1,000 / 100,000 / 1,000,000)
+ */
+public class PersistentCollectionBenchmark {
+
+    static final int PROBES = 1 << 12;
+
+    public static void main(String[] args) throws InterruptedException {
+        int[] sizes = {1_000, 100_000, 1_000_000};
+        if(args.length > 0){
+            sizes = new int[args.length];
+            for(int i = 0; i < args.length; i++) sizes[i] = Integer.parseInt(args[i]);
+        }
+        for(int size : sizes){
+            System.out.printf("%n======== n = %,d ========%n", size);
+            updates(size);
+            concurrent(size);
+        }
+    }
+
+    static void updates(int size){
+        Random random = new Random(42);
+        int[] indexes = new int[PROBES];
+        for(int i = 0; i < PROBES; i++) indexes[i] = random.nextInt(size);
+        int mask = PROBES - 1;
+        int batch = Math.max(1, Math.min(1024, 10_000_000 / size));
+
+        List<Integer> arrayList = new ArrayList<>();
+        Map<Integer, Integer> hashMap = new HashMap<>();
+        for(int i = 0; i < size; i++){
+            arrayList.add(i);
+            hashMap.put(i, i);
+        }
+        PersistentVector<Integer> vector = PersistentVector.from(arrayList);
+        PersistentHashMap<Integer, Integer> map = PersistentHashMap.from(hashMap);
+
+        System.out.println();
+        System.out.println(String.format("%-22s%-22s%-22s", "UPDATES", "copy-on-write", "persistent").trim());
+        row("list append",
+                Benchmark.measure(i -> {
+                    List<Integer> copy = new ArrayList<>(arrayList);
+                    copy.add(i);
+                    return copy.size();
+                }, batch),
+                Benchmark.measure(i -> vector.plus(i).size(), batch));
+        row("list set",
+                Benchmark.measure(i -> {
+                    List<Integer> copy = new ArrayList<>(arrayList);
+                    copy.set(indexes[i & mask], -1);
+                    return copy.size();
+                }, batch),
+                Benchmark.measure(i -> vector.with(indexes[i & mask], -1).size(), batch));
+        row("map put",
+                Benchmark.measure(i -> {
+                    Map<Integer, Integer> copy = new HashMap<>(hashMap);
+                    copy.put(indexes[i & mask], -1);
+                    return copy.size();
+                }, batch),
+                Benchmark.measure(i -> map.plus(indexes[i & mask], -1).size(), batch));
+        row("map remove",
+                Benchmark.measure(i -> {
+                    Map<Integer, Integer> copy = new HashMap<>(hashMap);
+                    copy.remove(indexes[i & mask]);
+                    return copy.size();
+                }, batch),
+                Benchmark.measure(i -> map.minus(indexes[i & mask]).size(), batch));
+
+        System.out.println();
+        System.out.println(String.format("%-22s%-22s%-22s%-22s", "LOAD n ELEMENTS", "ArrayList/HashMap", "Builder",
+                "repeated plus").trim());
+        System.out.println(String.format("%-22s%-22s%-22s%-22s", "list",
+                Benchmark.measure(i -> new ArrayList<>(arrayList).size(), 1),
+                Benchmark.measure(i -> PersistentVector.<Integer>builder().addAll(arrayList).build().size(), 1),
+                Benchmark.measure(i -> {
+                    PersistentVector<Integer> loaded = PersistentVector.empty();
+                    for(Integer element : arrayList) loaded = loaded.plus(element);
+                    return loaded.size();
+                }, 1)).trim());
+        System.out.println(String.format("%-22s%-22s%-22s%-22s", "map",
+                Benchmark.measure(i -> new HashMap<>(hashMap).size(), 1),
+                Benchmark.measure(i -> PersistentHashMap.from(hashMap).size(), 1),
+                Benchmark.measure(i -> {
+                    PersistentHashMap<Integer, Integer> loaded = PersistentHashMap.empty();
+                    for(Map.Entry<Integer, Integer> entry : hashMap.entrySet()) loaded = loaded.plus(entry.getKey(), entry.getValue());
+                    return loaded.size();
+                }, 1)).trim());
+    }
+
+    // a collection shared between one writer and many readers.
+    interface Shared {
+        int read(int index);
+
+        void write(int index, int value);
+    }
+
+    static void concurrent(int size) throws InterruptedException {
+        List<Integer> elements = new ArrayList<>();
+        Map<Integer, Integer> entries = new HashMap<>();
+        for(int i = 0; i < size; i++){
+            elements.add(i);
+            entries.put(i, i);
+        }
+        int readers = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        System.out.println();
+        System.out.printf("CONCURRENT (1 writer, %d readers) -> reads / updates per second%n", readers);
+        System.out.println(String.format("%-22s%-22s%-22s%-22s", "Operation", "copy-on-write", "unmodifiable", "persistent").trim());
+
+        CopyOnWriteArrayList<Integer> copyOnWriteList = new CopyOnWriteArrayList<>(elements);
+        List<Integer> synchronizedList = Collections.synchronizedList(new ArrayList<>(elements));
+        List<Integer> unmodifiableList = Collections.unmodifiableList(synchronizedList);
+        Shared[] lists = {
+                new Shared() {
+                    public int read(int index){ return copyOnWriteList.get(index); }
+                    public void write(int index, int value){ copyOnWriteList.set(index, value); }
+                },
+                new Shared() {
+                    public int read(int index){ return unmodifiableList.get(index); }
+                    public void write(int index, int value){ synchronizedList.set(index, value); }
+                },
+                new Shared() {
+                    volatile PersistentVector<Integer> vector = PersistentVector.from(elements);
+                    public int read(int index){ return vector.get(index); }
+                    public void write(int index, int value){ vector = vector.with(index, value); }
+                }};
+
+        Map<Integer, Integer> synchronizedMap = Collections.synchronizedMap(new HashMap<>(entries));
+        Map<Integer, Integer> unmodifiableMap = Collections.unmodifiableMap(synchronizedMap);
+        Shared[] maps = {
+                new Shared() {
+                    volatile Map<Integer, Integer> map = Collections.unmodifiableMap(new HashMap<>(entries));
+                    public int read(int index){ return map.get(index); }
+                    public void write(int index, int value){
+                        Map<Integer, Integer> copy = new HashMap<>(map);
+                        copy.put(index, value);
+                        map = Collections.unmodifiableMap(copy);
+                    }
+                },
+                new Shared() {
+                    public int read(int index){ return unmodifiableMap.get(index); }
+                    public void write(int index, int value){ synchronizedMap.put(index, value); }
+                },
+                new Shared() {
+                    volatile PersistentHashMap<Integer, Integer> map = PersistentHashMap.from(entries);
+                    public int read(int index){ return map.get(index); }
+                    public void write(int index, int value){ map = map.plus(index, value); }
+                }};
+
+        String[] listCells = new String[3];
+        String[] mapCells = new String[3];
+        for(int i = 0; i < 3; i++){
+            listCells[i] = run(lists[i], size, readers);
+            mapCells[i] = run(maps[i], size, readers);
+        }
+        System.out.println(String.format("%-22s%-22s%-22s%-22s", "list get / set", listCells[0], listCells[1], listCells[2]).trim());
+        System.out.println(String.format("%-22s%-22s%-22s%-22s", "map get / put", mapCells[0], mapCells[1], mapCells[2]).trim());
+    }
+
+    // runs the readers and the writer together for the measurement time, and returns "reads/s / updates/s".
+    static String run(Shared shared, int size, int readers) throws InterruptedException {
+        long millis = Long.getLong("bigo.measureMillis", 500);
+        AtomicBoolean running = new AtomicBoolean(true);
+        long[] reads = new long[readers];
+        long[] writes = new long[1];
+        Thread[] threads = new Thread[readers + 1];
+        for(int r = 0; r < readers; r++){
+            int reader = r;
+            threads[r] = new Thread(() -> {
+                Random random = new Random(reader);
+                long count = 0;
+                long checksum = 0;
+                while(running.get()){
+                    checksum += shared.read(random.nextInt(size));
+                    count++;
+                }
+                reads[reader] = count;
+                Benchmark.consume(checksum);
+            });
+        }
+        threads[readers] = new Thread(() -> {
+            Random random = new Random(-1);
+            long count = 0;
+            while(running.get()){
+                shared.write(random.nextInt(size), (int) count);
+                count++;
+            }
+            writes[0] = count;
+        });
+        for(Thread thread : threads) thread.start();
+        Thread.sleep(millis);
+        running.set(false);
+        for(Thread thread : threads) thread.join();
+        long totalReads = 0;
+        for(long count : reads) totalReads += count;
+        return String.format("%s / %s", perSecond(totalReads * 1000.0 / millis), perSecond(writes[0] * 1000.0 / millis));
+    }
+
+    static String perSecond(double rate){
+        if(rate >= 1e6) return String.format("%.1fM", rate / 1e6);
+        if(rate >= 1e3) return String.format("%.1fK", rate / 1e3);
+        return String.format("%.0f", rate);
+    }
+
+    static void row(String name, Benchmark.Result copyOnWrite, Benchmark.Result persistent){
+        System.out.println(String.format("%-22s%-22s%-22s", name, copyOnWrite, persistent).trim());
+    }
+}
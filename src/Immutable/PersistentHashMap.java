@@ -0,0 +1,437 @@
+package Immutable;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import static Equals.Hash.mix;
+
+/*
+    An immutable map which can be "updated" cheaply -> plus and minus return a NEW map in O(log32 n) and leave this one
+    unchanged, sharing all but the changed path of nodes with it (see PersistentVector for structural sharing, and
+    Builder below for loading many entries at once).
+
+    It is a HASH ARRAY MAPPED TRIE (HAMT), as in Clojure and Scala -> a trie of the bits of the key's hash, 5 bits per
+    level, so each node has up to 32 children. Rather than a 32 element array with mostly empty slots, each node holds
+    a 32 bit BITMAP of which slots are in use, and an array of just those; slot s is at index bitCount(bitmap below s).
+    Each used slot holds either a key and its value, or (with a null key) the node for the next 5 bits. Keys whose
+    whole 32 bit hashes are equal go into a collision node, which is searched linearly.
+    The hash of each key is first mixed (see Equals.Hash.mix), so that keys with similar hashCodes (eg. small Integers)
+    spread over the slots rather than forming a deep narrow trie.
+
+    Null keys are not allowed (null values are). Like the unmodifiable collections, the methods of Map which change the
+    map (put, remove...) throw UnsupportedOperationException.
+ */
+public final class PersistentHashMap<K, V> extends AbstractMap<K, V> {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final Object NOT_FOUND = new Object();
+
+    private static final PersistentHashMap<?, ?> EMPTY = new PersistentHashMap<>(0, null);
+
+    private final int size;
+    private final Node root; // null when empty.
+
+    private PersistentHashMap(int size, Node root){
+        this.size = size;
+        this.root = root;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentHashMap<K, V> empty(){
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    public static <K, V> PersistentHashMap<K, V> from(Map<? extends K, ? extends V> map){
+        Builder<K, V> builder = new Builder<>(empty());
+        for(Map.Entry<? extends K, ? extends V> entry : map.entrySet()) builder.put(entry.getKey(), entry.getValue());
+        return builder.build();
+    }
+
+    public static <K, V> Builder<K, V> builder(){
+        return new Builder<>(empty());
+    }
+
+    public Builder<K, V> toBuilder(){
+        return new Builder<>(this);
+    }
+
+    @Override
+    public int size(){
+        return size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key){
+        Object value = find(key);
+        return value == NOT_FOUND ? null : (V) value;
+    }
+
+    @Override
+    public boolean containsKey(Object key){
+        return find(key) != NOT_FOUND;
+    }
+
+    // a new map with key mapped to value.
+    public PersistentHashMap<K, V> plus(K key, V value){
+        if(key == null) throw new NullPointerException("Null keys are not allowed");
+        Change change = new Change();
+        Node newRoot = (root == null ? BitmapNode.EMPTY : root).put(null, 0, hash(key), key, value, change);
+        if(newRoot == root) return this;
+        return new PersistentHashMap<>(change.sizeChange == 1 ? size + 1 : size, newRoot);
+    }
+
+    // a new map without key.
+    public PersistentHashMap<K, V> minus(Object key){
+        if(key == null || root == null) return this;
+        Change change = new Change();
+        Node newRoot = root.remove(null, 0, hash(key), key, change);
+        if(change.sizeChange == 0) return this;
+        return size == 1 ? empty() : new PersistentHashMap<>(size - 1, newRoot);
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet(){
+        return new AbstractSet<Map.Entry<K, V>>() {
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator(){
+                return new EntryIterator<>(root);
+            }
+
+            @Override
+            public int size(){
+                return size;
+            }
+        };
+    }
+
+    private Object find(Object key){
+        if(key == null || root == null) return NOT_FOUND;
+        return root.find(0, hash(key), key);
+    }
+
+    private static int hash(Object key){
+        return mix(key.hashCode());
+    }
+
+    // records whether a put added an entry (1), or a remove removed one (-1).
+    private static final class Change {
+        int sizeChange;
+    }
+
+    private static abstract class Node {
+        abstract Object find(int shift, int hash, Object key);
+
+        // the node with key mapped to value -> this node changed in place if edit is its builder's token, otherwise a
+        // new node (or this node, if the value was already mapped).
+        abstract Node put(Object edit, int shift, int hash, Object key, Object value, Change change);
+
+        // the node without key, or null if it is left empty.
+        abstract Node remove(Object edit, int shift, int hash, Object key, Change change);
+
+        // the slots in use, as key, value pairs (null key -> the value is a child node).
+        abstract Object[] array();
+
+        abstract int pairs();
+    }
+
+    private static final class BitmapNode extends Node {
+        static final BitmapNode EMPTY = new BitmapNode(null, 0, new Object[0]);
+
+        final Object edit;
+        int bitmap;
+        Object[] array; // may have spare room at the end when owned by a builder.
+
+        BitmapNode(Object edit, int bitmap, Object[] array){
+            this.edit = edit;
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+
+        @Override
+        Object find(int shift, int hash, Object key){
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if((bitmap & bit) == 0) return NOT_FOUND;
+            int index = index(bit);
+            Object slotKey = array[2 * index];
+            Object slotValue = array[2 * index + 1];
+            if(slotKey == null) return ((Node) slotValue).find(shift + BITS, hash, key);
+            return key.equals(slotKey) ? slotValue : NOT_FOUND;
+        }
+
+        @Override
+        Node put(Object edit, int shift, int hash, Object key, Object value, Change change){
+            int bit = 1 << ((hash >>> shift) & MASK);
+            int index = index(bit);
+            if((bitmap & bit) != 0){
+                Object slotKey = array[2 * index];
+                Object slotValue = array[2 * index + 1];
+                if(slotKey == null){
+                    Node child = ((Node) slotValue).put(edit, shift + BITS, hash, key, value, change);
+                    return child == slotValue ? this : set(edit, 2 * index + 1, child);
+                }
+                if(key.equals(slotKey)) return slotValue == value ? this : set(edit, 2 * index + 1, value);
+                // a different key in the slot -> replace it with a node holding both.
+                change.sizeChange = 1;
+                Node child = pair(edit, shift + BITS, slotKey, slotValue, hash, key, value);
+                BitmapNode result = editable(edit);
+                result.array[2 * index] = null;
+                result.array[2 * index + 1] = child;
+                return result;
+            }
+            change.sizeChange = 1;
+            int pairs = pairs();
+            BitmapNode result;
+            if(edit != null && this.edit == edit && array.length >= 2 * (pairs + 1)){
+                result = this;
+                System.arraycopy(array, 2 * index, array, 2 * (index + 1), 2 * (pairs - index));
+            } else {
+                // a builder leaves room for a few more pairs, so that it does not copy the array for every put.
+                Object[] newArray = new Object[2 * (edit == null ? pairs + 1 : Math.min(pairs + 4, 1 << BITS))];
+                System.arraycopy(array, 0, newArray, 0, 2 * index);
+                System.arraycopy(array, 2 * index, newArray, 2 * (index + 1), 2 * (pairs - index));
+                result = new BitmapNode(edit, bitmap, newArray);
+            }
+            result.array[2 * index] = key;
+            result.array[2 * index + 1] = value;
+            result.bitmap |= bit;
+            return result;
+        }
+
+        @Override
+        Node remove(Object edit, int shift, int hash, Object key, Change change){
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if((bitmap & bit) == 0) return this;
+            int index = index(bit);
+            Object slotKey = array[2 * index];
+            Object slotValue = array[2 * index + 1];
+            if(slotKey == null){
+                Node child = ((Node) slotValue).remove(edit, shift + BITS, hash, key, change);
+                if(child == slotValue) return this;
+                if(child != null) return set(edit, 2 * index + 1, child);
+            } else if(!key.equals(slotKey)){
+                return this;
+            } else {
+                change.sizeChange = -1;
+            }
+            // the slot is now empty.
+            if(bitmap == bit) return null;
+            int pairs = pairs();
+            Object[] newArray = new Object[2 * (pairs - 1)];
+            System.arraycopy(array, 0, newArray, 0, 2 * index);
+            System.arraycopy(array, 2 * (index + 1), newArray, 2 * index, 2 * (pairs - index - 1));
+            return new BitmapNode(edit, bitmap & ~bit, newArray);
+        }
+
+        @Override
+        Object[] array(){
+            return array;
+        }
+
+        @Override
+        int pairs(){
+            return Integer.bitCount(bitmap);
+        }
+
+        private int index(int bit){
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        private BitmapNode editable(Object edit){
+            if(edit != null && this.edit == edit) return this;
+            return new BitmapNode(edit, bitmap, array.clone());
+        }
+
+        private BitmapNode set(Object edit, int index, Object value){
+            BitmapNode result = editable(edit);
+            result.array[index] = value;
+            return result;
+        }
+    }
+
+    // the keys whose (mixed) hashes are all equal to hash.
+    private static final class CollisionNode extends Node {
+        final Object edit;
+        final int hash;
+        Object[] array;
+
+        CollisionNode(Object edit, int hash, Object[] array){
+            this.edit = edit;
+            this.hash = hash;
+            this.array = array;
+        }
+
+        @Override
+        Object find(int shift, int hash, Object key){
+            int index = indexOf(key);
+            return index < 0 ? NOT_FOUND : array[index + 1];
+        }
+
+        @Override
+        Node put(Object edit, int shift, int hash, Object key, Object value, Change change){
+            if(hash != this.hash){
+                // a key with another hash arrived here -> put this node one level down, in a bitmap node.
+                BitmapNode parent = new BitmapNode(edit, 1 << ((this.hash >>> shift) & MASK), new Object[]{null, this});
+                return parent.put(edit, shift, hash, key, value, change);
+            }
+            int index = indexOf(key);
+            if(index >= 0){
+                if(array[index + 1] == value) return this;
+                CollisionNode result = editable(edit);
+                result.array[index + 1] = value;
+                return result;
+            }
+            change.sizeChange = 1;
+            Object[] newArray = Arrays.copyOf(array, array.length + 2);
+            newArray[array.length] = key;
+            newArray[array.length + 1] = value;
+            if(edit != null && this.edit == edit){
+                array = newArray;
+                return this;
+            }
+            return new CollisionNode(edit, hash, newArray);
+        }
+
+        @Override
+        Node remove(Object edit, int shift, int hash, Object key, Change change){
+            int index = indexOf(key);
+            if(index < 0) return this;
+            change.sizeChange = -1;
+            if(array.length == 2) return null;
+            Object[] newArray = new Object[array.length - 2];
+            System.arraycopy(array, 0, newArray, 0, index);
+            System.arraycopy(array, index + 2, newArray, index, array.length - index - 2);
+            return new CollisionNode(edit, this.hash, newArray);
+        }
+
+        @Override
+        Object[] array(){
+            return array;
+        }
+
+        @Override
+        int pairs(){
+            return array.length / 2;
+        }
+
+        private int indexOf(Object key){
+            for(int i = 0; i < array.length; i += 2) if(key.equals(array[i])) return i;
+            return -1;
+        }
+
+        private CollisionNode editable(Object edit){
+            if(edit != null && this.edit == edit) return this;
+            return new CollisionNode(edit, hash, array.clone());
+        }
+    }
+
+    // a node holding two keys (which share the slot above it), at the level given by shift.
+    private static Node pair(Object edit, int shift, Object key1, Object value1, int hash2, Object key2, Object value2){
+        int hash1 = hash(key1);
+        if(hash1 == hash2) return new CollisionNode(edit, hash1, new Object[]{key1, value1, key2, value2});
+        Change ignored = new Change();
+        return BitmapNode.EMPTY.put(edit, shift, hash1, key1, value1, ignored)
+                .put(edit, shift, hash2, key2, value2, ignored);
+    }
+
+    // depth first over the trie, with an explicit stack -> at most 7 levels of bitmap nodes (5 bits each) plus a
+    // collision node.
+    private static final class EntryIterator<K, V> implements Iterator<Map.Entry<K, V>> {
+        private final Node[] nodes = new Node[8];
+        private final int[] positions = new int[8];
+        private int depth = -1;
+        private Map.Entry<K, V> next;
+
+        EntryIterator(Node root){
+            if(root != null) nodes[++depth] = root;
+            advance();
+        }
+
+        @Override
+        public boolean hasNext(){
+            return next != null;
+        }
+
+        @Override
+        public Map.Entry<K, V> next(){
+            if(next == null) throw new NoSuchElementException();
+            Map.Entry<K, V> result = next;
+            advance();
+            return result;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void advance(){
+            next = null;
+            while(depth >= 0){
+                Node node = nodes[depth];
+                int position = positions[depth];
+                if(position >= node.pairs()){
+                    positions[depth--] = 0;
+                    continue;
+                }
+                positions[depth]++;
+                Object key = node.array()[2 * position];
+                Object value = node.array()[2 * position + 1];
+                if(key == null){
+                    nodes[++depth] = (Node) value;
+                } else {
+                    next = new AbstractMap.SimpleImmutableEntry<>((K) key, (V) value);
+                    return;
+                }
+            }
+        }
+    }
+
+    // builds a map by changing its own nodes in place -> see PersistentVector for how the edit token works.
+    // Not thread safe.
+    public static final class Builder<K, V> {
+        private Object edit = new Object();
+        private int size;
+        private Node root;
+
+        private Builder(PersistentHashMap<K, V> map){
+            this.size = map.size;
+            this.root = map.root;
+        }
+
+        public int size(){
+            return size;
+        }
+
+        public Builder<K, V> put(K key, V value){
+            ensureEditable();
+            if(key == null) throw new NullPointerException("Null keys are not allowed");
+            Change change = new Change();
+            root = (root == null ? BitmapNode.EMPTY : root).put(edit, 0, hash(key), key, value, change);
+            size += change.sizeChange;
+            return this;
+        }
+
+        public Builder<K, V> remove(Object key){
+            ensureEditable();
+            if(key == null || root == null) return this;
+            Change change = new Change();
+            root = root.remove(edit, 0, hash(key), key, change);
+            size += change.sizeChange;
+            return this;
+        }
+
+        // returns the map, after which the builder cannot be used.
+        public PersistentHashMap<K, V> build(){
+            ensureEditable();
+            edit = null;
+            return size == 0 ? empty() : new PersistentHashMap<>(size, root);
+        }
+
+        private void ensureEditable(){
+            if(edit == null) throw new IllegalStateException("Builder used after build()");
+        }
+    }
+}
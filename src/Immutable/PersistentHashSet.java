@@ -0,0 +1,96 @@
+package Immutable;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+
+/*
+    An immutable set which can be "updated" cheaply -> plus and minus return a NEW set in O(log32 n). It is a
+    PersistentHashMap from each element to itself (see there for how it works), as HashSet is a HashMap.
+    Null elements are not allowed. The methods of Set which change the set throw UnsupportedOperationException.
+ */
+public final class PersistentHashSet<E> extends AbstractSet<E> {
+
+    private static final PersistentHashSet<?> EMPTY = new PersistentHashSet<>(PersistentHashMap.empty());
+
+    private final PersistentHashMap<E, E> map;
+
+    private PersistentHashSet(PersistentHashMap<E, E> map){
+        this.map = map;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentHashSet<E> empty(){
+        return (PersistentHashSet<E>) EMPTY;
+    }
+
+    public static <E> PersistentHashSet<E> from(Collection<? extends E> elements){
+        Builder<E> builder = builder();
+        for(E element : elements) builder.add(element);
+        return builder.build();
+    }
+
+    public static <E> Builder<E> builder(){
+        return new Builder<>(PersistentHashMap.<E, E>empty().toBuilder());
+    }
+
+    public Builder<E> toBuilder(){
+        return new Builder<>(map.toBuilder());
+    }
+
+    @Override
+    public int size(){
+        return map.size();
+    }
+
+    @Override
+    public boolean contains(Object element){
+        return map.containsKey(element);
+    }
+
+    @Override
+    public Iterator<E> iterator(){
+        return map.keySet().iterator();
+    }
+
+    // a new set with element added.
+    public PersistentHashSet<E> plus(E element){
+        PersistentHashMap<E, E> newMap = map.plus(element, element);
+        return newMap == map ? this : new PersistentHashSet<>(newMap);
+    }
+
+    // a new set without element.
+    public PersistentHashSet<E> minus(Object element){
+        PersistentHashMap<E, E> newMap = map.minus(element);
+        return newMap == map ? this : new PersistentHashSet<>(newMap);
+    }
+
+    // builds a set by changing its own nodes in place (see PersistentVector). Not thread safe.
+    public static final class Builder<E> {
+        private final PersistentHashMap.Builder<E, E> map;
+
+        private Builder(PersistentHashMap.Builder<E, E> map){
+            this.map = map;
+        }
+
+        public int size(){
+            return map.size();
+        }
+
+        public Builder<E> add(E element){
+            map.put(element, element);
+            return this;
+        }
+
+        public Builder<E> remove(Object element){
+            map.remove(element);
+            return this;
+        }
+
+        // returns the set, after which the builder cannot be used.
+        public PersistentHashSet<E> build(){
+            PersistentHashMap<E, E> built = map.build();
+            return built.isEmpty() ? empty() : new PersistentHashSet<>(built);
+        }
+    }
+}
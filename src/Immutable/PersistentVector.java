@@ -0,0 +1,314 @@
+package Immutable;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/*
+    An immutable list which can be "updated" cheaply -> plus, with and minusLast return a NEW vector and leave this one
+    unchanged, so it can be shared between threads without locks or defensive copies, like any immutable object (see
+    ImmutableAlien). Copying an ArrayList to change one element is O(n); here it is O(log32 n), ie. effectively O(1),
+    since 32^4 is a million and 32^6 is a billion.
+
+    How -> the elements are stored in the leaves of a tree in which every node has (up to) 32 children. Element i is
+    found by taking 5 bits of i at a time, from the highest, as the index of the child at each level (a TRIE of the
+    index's bits). To change an element, only the nodes on the path from the root to its leaf are copied; every other
+    node is SHARED between the old and the new vector, which is safe because no node is ever changed once it is
+    reachable from a vector. This is STRUCTURAL SHARING, and it is how Clojure and Scala implement their vectors.
+    The last (up to) 32 elements are held outside the tree in the TAIL array, so that plus (appending) usually only
+    copies the small tail rather than a path of nodes.
+
+    For loading many elements at once use a Builder (what Clojure calls a transient) -> it updates its own nodes in
+    place rather than copying them, so it is as fast as an ArrayList, and build() returns the vector. The nodes a
+    builder may change are marked with its EDIT token, so it never changes a node shared with a published vector, and
+    it clears the token in build(), so nothing can change the nodes after that.
+
+    Like the unmodifiable collections, the methods of List which change the list (add, set, remove...) throw
+    UnsupportedOperationException.
+ */
+public final class PersistentVector<E> extends AbstractList<E> implements RandomAccess {
+
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    private static final Node EMPTY_NODE = new Node(null, new Object[WIDTH]);
+    private static final PersistentVector<?> EMPTY = new PersistentVector<>(0, BITS, EMPTY_NODE, new Object[0]);
+
+    // a node of the tree -> array holds the child nodes, or the elements in a leaf. edit is the token of the builder
+    // allowed to change it in place, or null.
+    private static final class Node {
+        final Object edit;
+        final Object[] array;
+
+        Node(Object edit, Object[] array){
+            this.edit = edit;
+            this.array = array;
+        }
+    }
+
+    private final int count;
+    private final int shift; // the number of bits of the index used below the root, ie. 5 * the height of the tree.
+    private final Node root;
+    private final Object[] tail;
+
+    private PersistentVector(int count, int shift, Node root, Object[] tail){
+        this.count = count;
+        this.shift = shift;
+        this.root = root;
+        this.tail = tail;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentVector<E> empty(){
+        return (PersistentVector<E>) EMPTY;
+    }
+
+    public static <E> PersistentVector<E> from(Collection<? extends E> elements){
+        Builder<E> builder = new Builder<>(empty());
+        for(E element : elements) builder.add(element);
+        return builder.build();
+    }
+
+    public static <E> Builder<E> builder(){
+        return new Builder<>(empty());
+    }
+
+    // a builder which starts with the elements of this vector -> O(1), since it shares the nodes until it changes them.
+    public Builder<E> toBuilder(){
+        return new Builder<>(this);
+    }
+
+    @Override
+    public int size(){
+        return count;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index){
+        return (E) leafFor(index)[index & MASK];
+    }
+
+    // a new vector with element added at the end.
+    public PersistentVector<E> plus(E element){
+        if(count - tailOffset(count) < WIDTH){
+            Object[] newTail = Arrays.copyOf(tail, tail.length + 1);
+            newTail[tail.length] = element;
+            return new PersistentVector<>(count + 1, shift, root, newTail);
+        }
+        // the tail is full -> push it into the tree as a new leaf, and start a new tail.
+        Node tailNode = new Node(null, tail);
+        int newShift = shift;
+        Node newRoot;
+        if((count >>> BITS) > (1 << shift)){ // the tree is full, so add a level above the root.
+            newRoot = new Node(null, new Object[WIDTH]);
+            newRoot.array[0] = root;
+            newRoot.array[1] = newPath(null, shift, tailNode);
+            newShift += BITS;
+        } else {
+            newRoot = pushTail(null, count, shift, root, tailNode);
+        }
+        return new PersistentVector<>(count + 1, newShift, newRoot, new Object[]{element});
+    }
+
+    // a new vector with the element at index replaced.
+    public PersistentVector<E> with(int index, E element){
+        checkIndex(index, count);
+        if(index >= tailOffset(count)){
+            Object[] newTail = tail.clone();
+            newTail[index & MASK] = element;
+            return new PersistentVector<>(count, shift, root, newTail);
+        }
+        return new PersistentVector<>(count, shift, assoc(null, shift, root, index, element), tail);
+    }
+
+    // a new vector without the last element.
+    public PersistentVector<E> minusLast(){
+        if(count == 0) throw new IllegalStateException("Vector is empty");
+        if(count == 1) return empty();
+        if(count - tailOffset(count) > 1){
+            return new PersistentVector<>(count - 1, shift, root, Arrays.copyOf(tail, tail.length - 1));
+        }
+        // the tail would be empty -> the last leaf of the tree becomes the tail.
+        Object[] newTail = leafFor(count - 2);
+        Node newRoot = popTail(count, shift, root);
+        int newShift = shift;
+        if(newRoot == null) newRoot = EMPTY_NODE;
+        if(shift > BITS && newRoot.array[1] == null){ // the root has one child, so remove a level.
+            newRoot = (Node) newRoot.array[0];
+            newShift -= BITS;
+        }
+        return new PersistentVector<>(count - 1, newShift, newRoot, newTail);
+    }
+
+    // iterates leaf by leaf, rather than walking down the tree for each element as get does.
+    @Override
+    public Iterator<E> iterator(){
+        return new Iterator<E>() {
+            private int index = 0;
+            private Object[] leaf = count == 0 ? null : leafFor(0);
+
+            @Override
+            public boolean hasNext(){
+                return index < count;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public E next(){
+                if(index >= count) throw new NoSuchElementException();
+                if(index > 0 && (index & MASK) == 0) leaf = leafFor(index);
+                return (E) leaf[index++ & MASK];
+            }
+        };
+    }
+
+    private Object[] leafFor(int index){
+        checkIndex(index, count);
+        if(index >= tailOffset(count)) return tail;
+        Node node = root;
+        for(int level = shift; level > 0; level -= BITS) node = (Node) node.array[(index >>> level) & MASK];
+        return node.array;
+    }
+
+    // the index of the first element in the tail.
+    private static int tailOffset(int count){
+        return count < WIDTH ? 0 : ((count - 1) >>> BITS) << BITS;
+    }
+
+    private static void checkIndex(int index, int count){
+        if(index < 0 || index >= count) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+    }
+
+    // the node itself if the builder with token edit may change it, otherwise a copy which it may change.
+    private static Node editable(Object edit, Node node){
+        if(edit != null && node.edit == edit) return node;
+        return new Node(edit, node.array.clone());
+    }
+
+    // the methods below are shared by the vector (with edit null, so that every node on the path is copied) and
+    // the builder (which only copies the nodes it does not already own).
+
+    // a chain of new single child nodes from level down to node.
+    private static Node newPath(Object edit, int level, Node node){
+        if(level == 0) return node;
+        Node path = new Node(edit, new Object[WIDTH]);
+        path.array[0] = newPath(edit, level - BITS, node);
+        return path;
+    }
+
+    // adds tailNode as the next leaf of a tree holding count elements (including the full tail).
+    private static Node pushTail(Object edit, int count, int level, Node parent, Node tailNode){
+        Node result = editable(edit, parent);
+        int child = ((count - 1) >>> level) & MASK;
+        Node insert;
+        if(level == BITS){
+            insert = tailNode;
+        } else {
+            Node existing = (Node) parent.array[child];
+            insert = existing != null ? pushTail(edit, count, level - BITS, existing, tailNode)
+                    : newPath(edit, level - BITS, tailNode);
+        }
+        result.array[child] = insert;
+        return result;
+    }
+
+    private static Node assoc(Object edit, int level, Node node, int index, Object element){
+        Node result = editable(edit, node);
+        if(level == 0){
+            result.array[index & MASK] = element;
+        } else {
+            int child = (index >>> level) & MASK;
+            result.array[child] = assoc(edit, level - BITS, (Node) node.array[child], index, element);
+        }
+        return result;
+    }
+
+    // removes the last leaf of a tree of count elements, returning null if the node is left empty.
+    private static Node popTail(int count, int level, Node node){
+        int child = ((count - 2) >>> level) & MASK;
+        if(level > BITS){
+            Node newChild = popTail(count, level - BITS, (Node) node.array[child]);
+            if(newChild == null && child == 0) return null;
+            Node result = new Node(null, node.array.clone());
+            result.array[child] = newChild;
+            return result;
+        }
+        if(child == 0) return null;
+        Node result = new Node(null, node.array.clone());
+        result.array[child] = null;
+        return result;
+    }
+
+    // builds a vector by changing its own nodes in place -> see the comment at the top. Not thread safe.
+    public static final class Builder<E> {
+        private Object edit = new Object();
+        private int count;
+        private int shift;
+        private Node root;
+        private Object[] tail;
+
+        private Builder(PersistentVector<E> vector){
+            this.count = vector.count;
+            this.shift = vector.shift;
+            this.root = new Node(edit, vector.root.array.clone());
+            this.tail = Arrays.copyOf(vector.tail, WIDTH); // a full size tail, so that add can fill it in place.
+        }
+
+        public int size(){
+            return count;
+        }
+
+        public Builder<E> add(E element){
+            ensureEditable();
+            if(count - tailOffset(count) < WIDTH){
+                tail[count & MASK] = element;
+                count++;
+                return this;
+            }
+            Node tailNode = new Node(edit, tail);
+            tail = new Object[WIDTH];
+            tail[0] = element;
+            if((count >>> BITS) > (1 << shift)){
+                Node newRoot = new Node(edit, new Object[WIDTH]);
+                newRoot.array[0] = root;
+                newRoot.array[1] = newPath(edit, shift, tailNode);
+                root = newRoot;
+                shift += BITS;
+            } else {
+                root = pushTail(edit, count, shift, root, tailNode);
+            }
+            count++;
+            return this;
+        }
+
+        public Builder<E> addAll(Iterable<? extends E> elements){
+            for(E element : elements) add(element);
+            return this;
+        }
+
+        public Builder<E> set(int index, E element){
+            ensureEditable();
+            checkIndex(index, count);
+            if(index >= tailOffset(count)) tail[index & MASK] = element;
+            else root = assoc(edit, shift, root, index, element);
+            return this;
+        }
+
+        // returns the vector, after which the builder cannot be used.
+        public PersistentVector<E> build(){
+            ensureEditable();
+            edit = null;
+            if(count == 0) return empty();
+            return new PersistentVector<>(count, shift, root, Arrays.copyOf(tail, count - tailOffset(count)));
+        }
+
+        private void ensureEditable(){
+            if(edit == null) throw new IllegalStateException("Builder used after build()");
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package Sorting;
+
+import java.util.Comparator;
+
+/*
+    BUBBLESORT - O(n^2) (see the notes in class BigO);
+    Go through the array comparing each element with the one next to it, swapping them if they are out of order.
+    At the end of each pass the largest remaining element has "bubbled up" to its place at the end, so the next pass
+    can stop one element earlier.
+    If a whole pass makes no swaps the array is already sorted and we can stop -> this is why the best case (an already
+    sorted array) is O(n), ie. a single pass.
+    Only useful for tiny or almost sorted arrays, but it is stable (equal elements keep their order) and in place.
+ */
+public final class BubbleSort {
+
+    private BubbleSort(){
+    }
+
+    public static void sort(int[] array){
+        for(int end = array.length - 1; end > 0; end--){
+            boolean swapped = false;
+            for(int i = 0; i < end; i++){
+                if(array[i] > array[i + 1]){
+                    int temp = array[i];
+                    array[i] = array[i + 1];
+                    array[i + 1] = temp;
+                    swapped = true;
+                }
+            }
+            if(!swapped) return;
+        }
+    }
+
+    public static <T> void sort(T[] array, Comparator<? super T> comparator){
+        for(int end = array.length - 1; end > 0; end--){
+            boolean swapped = false;
+            for(int i = 0; i < end; i++){
+                if(comparator.compare(array[i], array[i + 1]) > 0){
+                    T temp = array[i];
+                    array[i] = array[i + 1];
+                    array[i + 1] = temp;
+                    swapped = true;
+                }
+            }
+            if(!swapped) return;
+        }
+    }
+}
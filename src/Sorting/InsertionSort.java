@@ -0,0 +1,43 @@
+package Sorting;
+
+import java.util.Comparator;
+
+/*
+    INSERTIONSORT - O(n^2), but O(n) on sorted input, and the fastest sort for very small ranges because its inner loop
+    is so simple. QuickSort and MergeSort hand their small sub-arrays (see THRESHOLD) over to it, rather than recursing
+    all the way down to ranges of one element.
+    Each element is taken in turn and shifted left until the element before it is no larger. Stable and in place.
+ */
+final class InsertionSort {
+
+    // ranges of this many elements or fewer are insertion sorted.
+    static final int THRESHOLD = 16;
+
+    private InsertionSort(){
+    }
+
+    // sorts array[from, to).
+    static void sort(int[] array, int from, int to){
+        for(int i = from + 1; i < to; i++){
+            int element = array[i];
+            int j = i - 1;
+            while(j >= from && array[j] > element){
+                array[j + 1] = array[j];
+                j--;
+            }
+            array[j + 1] = element;
+        }
+    }
+
+    static <T> void sort(T[] array, int from, int to, Comparator<? super T> comparator){
+        for(int i = from + 1; i < to; i++){
+            T element = array[i];
+            int j = i - 1;
+            while(j >= from && comparator.compare(array[j], element) > 0){
+                array[j + 1] = array[j];
+                j--;
+            }
+            array[j + 1] = element;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package Sorting;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/*
+    MERGESORT - O(n log n) in every case (see the notes in class BigO);
+    Split the array in half, mergesort each half, then MERGE the two sorted halves by repeatedly taking the smaller of
+    the two front elements. Halving gives log n levels, and each level merges a total of n elements -> O(n log n).
+    Unlike quicksort it is STABLE (equal elements keep their order, since on a tie the merge takes from the left half
+    first), which is why Java uses a mergesort (TimSort) for objects, but it needs an extra buffer of n elements.
+    Two cheap improvements;
+        * Small ranges are handed to InsertionSort.
+        * If the last element of the left half is <= the first element of the right half the halves are already in
+          order, so the merge is skipped -> sorted input is O(n).
+ */
+public final class MergeSort {
+
+    private MergeSort(){
+    }
+
+    public static void sort(int[] array){
+        sort(array, new int[array.length], 0, array.length);
+    }
+
+    public static <T> void sort(T[] array, Comparator<? super T> comparator){
+        sort(array, Arrays.copyOf(array, array.length), 0, array.length, comparator);
+    }
+
+    // sorts array[from, to), using buffer[from, to) as the merge buffer.
+    static void sort(int[] array, int[] buffer, int from, int to){
+        if(to - from <= InsertionSort.THRESHOLD){
+            InsertionSort.sort(array, from, to);
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        sort(array, buffer, from, mid);
+        sort(array, buffer, mid, to);
+        if(array[mid - 1] <= array[mid]) return;
+        System.arraycopy(array, from, buffer, from, to - from);
+        merge(buffer, from, mid, mid, to, array, from);
+    }
+
+    // merges the sorted runs source[lo1, hi1) and source[lo2, hi2) into target, starting at index at.
+    static void merge(int[] source, int lo1, int hi1, int lo2, int hi2, int[] target, int at){
+        while(lo1 < hi1 && lo2 < hi2){
+            target[at++] = source[lo2] < source[lo1] ? source[lo2++] : source[lo1++];
+        }
+        System.arraycopy(source, lo1, target, at, hi1 - lo1);
+        System.arraycopy(source, lo2, target, at + hi1 - lo1, hi2 - lo2);
+    }
+
+    static <T> void sort(T[] array, T[] buffer, int from, int to, Comparator<? super T> comparator){
+        if(to - from <= InsertionSort.THRESHOLD){
+            InsertionSort.sort(array, from, to, comparator);
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        sort(array, buffer, from, mid, comparator);
+        sort(array, buffer, mid, to, comparator);
+        if(comparator.compare(array[mid - 1], array[mid]) <= 0) return;
+        System.arraycopy(array, from, buffer, from, to - from);
+        merge(buffer, from, mid, mid, to, array, from, comparator);
+    }
+
+    // takes from the first run on a tie, which is what makes the sort stable.
+    static <T> void merge(T[] source, int lo1, int hi1, int lo2, int hi2, T[] target, int at,
+                          Comparator<? super T> comparator){
+        while(lo1 < hi1 && lo2 < hi2){
+            target[at++] = comparator.compare(source[lo2], source[lo1]) < 0 ? source[lo2++] : source[lo1++];
+        }
+        System.arraycopy(source, lo1, target, at, hi1 - lo1);
+        System.arraycopy(source, lo2, target, at + hi1 - lo1, hi2 - lo2);
+    }
+}
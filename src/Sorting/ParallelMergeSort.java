@@ -0,0 +1,213 @@
+package Sorting;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/*
+    PARALLEL MERGESORT using the fork/join framework.
+    The two halves of a mergesort are independent, so they can be sorted at the same time on different cores ->
+    each half is a task which FORKS two subtasks and JOINS them. A ForkJoinPool gives each core its own queue of
+    tasks, and an idle core STEALS work from the queues of the others, so the cores stay busy without us dividing
+    the work up front. Ranges below SORT_THRESHOLD are sorted sequentially by MergeSort, since a task costs far more
+    than sorting a few thousand elements.
+    If only the sorts ran in parallel the final merge would still be a sequential O(n) pass, which limits the
+    speedup. So the merges are parallel too -> take the middle element of the longer run, binary search for where
+    it belongs in the other run, and the two elements either side can then be merged as two independent tasks.
+    Work is still O(n log n), but the longest chain of dependent steps is only O(log^3 n), so it scales with cores.
+    Like MergeSort it is stable.
+ */
+public final class ParallelMergeSort {
+
+    static final int SORT_THRESHOLD = 1 << 13;
+    static final int MERGE_THRESHOLD = 1 << 14;
+
+    private ParallelMergeSort(){
+    }
+
+    public static void sort(int[] array){
+        sort(array, ForkJoinPool.commonPool());
+    }
+
+    // sorts using the given pool -> eg. new ForkJoinPool(cores) to measure how the sort scales.
+    public static void sort(int[] array, ForkJoinPool pool){
+        pool.invoke(new IntSortTask(array, new int[array.length], 0, array.length));
+    }
+
+    public static <T> void sort(T[] array, Comparator<? super T> comparator){
+        sort(array, comparator, ForkJoinPool.commonPool());
+    }
+
+    public static <T> void sort(T[] array, Comparator<? super T> comparator, ForkJoinPool pool){
+        pool.invoke(new SortTask<>(array, Arrays.copyOf(array, array.length), 0, array.length, comparator));
+    }
+
+    // sorts array[from, to), using buffer[from, to) as the merge buffer.
+    private static final class IntSortTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int[] array;
+        private final int[] buffer;
+        private final int from;
+        private final int to;
+
+        IntSortTask(int[] array, int[] buffer, int from, int to){
+            this.array = array;
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute(){
+            if(to - from <= SORT_THRESHOLD){
+                MergeSort.sort(array, buffer, from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new IntSortTask(array, buffer, from, mid), new IntSortTask(array, buffer, mid, to));
+            if(array[mid - 1] <= array[mid]) return;
+            System.arraycopy(array, from, buffer, from, to - from);
+            new IntMergeTask(buffer, from, mid, mid, to, array, from).compute();
+        }
+    }
+
+    // merges source[lo1, hi1) and source[lo2, hi2) into target from index at.
+    private static final class IntMergeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int[] source;
+        private final int lo1, hi1, lo2, hi2;
+        private final int[] target;
+        private final int at;
+
+        IntMergeTask(int[] source, int lo1, int hi1, int lo2, int hi2, int[] target, int at){
+            this.source = source;
+            this.lo1 = lo1;
+            this.hi1 = hi1;
+            this.lo2 = lo2;
+            this.hi2 = hi2;
+            this.target = target;
+            this.at = at;
+        }
+
+        @Override
+        protected void compute(){
+            if((hi1 - lo1) + (hi2 - lo2) <= MERGE_THRESHOLD){
+                MergeSort.merge(source, lo1, hi1, lo2, hi2, target, at);
+                return;
+            }
+            // split the longer run at its middle, and the other run where that middle element belongs -> elements
+            // of the second run equal to the pivot go after it when splitting the first run, and elements of the
+            // first run equal to the pivot go before it when splitting the second, which keeps the merge stable.
+            int split1, split2;
+            if(hi1 - lo1 >= hi2 - lo2){
+                split1 = (lo1 + hi1) >>> 1;
+                split2 = lowerBound(source, lo2, hi2, source[split1]);
+            } else {
+                split2 = (lo2 + hi2) >>> 1;
+                split1 = upperBound(source, lo1, hi1, source[split2]);
+            }
+            int middle = at + (split1 - lo1) + (split2 - lo2);
+            invokeAll(new IntMergeTask(source, lo1, split1, lo2, split2, target, at),
+                    new IntMergeTask(source, split1, hi1, split2, hi2, target, middle));
+        }
+    }
+
+    // the first index in array[from, to) whose element is >= key.
+    private static int lowerBound(int[] array, int from, int to, int key){
+        while(from < to){
+            int mid = (from + to) >>> 1;
+            if(array[mid] < key) from = mid + 1; else to = mid;
+        }
+        return from;
+    }
+
+    // the first index in array[from, to) whose element is > key.
+    private static int upperBound(int[] array, int from, int to, int key){
+        while(from < to){
+            int mid = (from + to) >>> 1;
+            if(array[mid] <= key) from = mid + 1; else to = mid;
+        }
+        return from;
+    }
+
+    private static final class SortTask<T> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final T[] array;
+        private final T[] buffer;
+        private final int from;
+        private final int to;
+        private final Comparator<? super T> comparator;
+
+        SortTask(T[] array, T[] buffer, int from, int to, Comparator<? super T> comparator){
+            this.array = array;
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+            this.comparator = comparator;
+        }
+
+        @Override
+        protected void compute(){
+            if(to - from <= SORT_THRESHOLD){
+                MergeSort.sort(array, buffer, from, to, comparator);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new SortTask<>(array, buffer, from, mid, comparator),
+                    new SortTask<>(array, buffer, mid, to, comparator));
+            if(comparator.compare(array[mid - 1], array[mid]) <= 0) return;
+            System.arraycopy(array, from, buffer, from, to - from);
+            new MergeTask<>(buffer, from, mid, mid, to, array, from, comparator).compute();
+        }
+    }
+
+    private static final class MergeTask<T> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final T[] source;
+        private final int lo1, hi1, lo2, hi2;
+        private final T[] target;
+        private final int at;
+        private final Comparator<? super T> comparator;
+
+        MergeTask(T[] source, int lo1, int hi1, int lo2, int hi2, T[] target, int at, Comparator<? super T> comparator){
+            this.source = source;
+            this.lo1 = lo1;
+            this.hi1 = hi1;
+            this.lo2 = lo2;
+            this.hi2 = hi2;
+            this.target = target;
+            this.at = at;
+            this.comparator = comparator;
+        }
+
+        @Override
+        protected void compute(){
+            if((hi1 - lo1) + (hi2 - lo2) <= MERGE_THRESHOLD){
+                MergeSort.merge(source, lo1, hi1, lo2, hi2, target, at, comparator);
+                return;
+            }
+            int split1, split2;
+            if(hi1 - lo1 >= hi2 - lo2){
+                split1 = (lo1 + hi1) >>> 1;
+                split2 = bound(source, lo2, hi2, source[split1], false);
+            } else {
+                split2 = (lo2 + hi2) >>> 1;
+                split1 = bound(source, lo1, hi1, source[split2], true);
+            }
+            int middle = at + (split1 - lo1) + (split2 - lo2);
+            invokeAll(new MergeTask<>(source, lo1, split1, lo2, split2, target, at, comparator),
+                    new MergeTask<>(source, split1, hi1, split2, hi2, target, middle, comparator));
+        }
+
+        // the first index in source[from, to) whose element is > key (upper), or >= key (lower).
+        private int bound(T[] source, int from, int to, T key, boolean upper){
+            while(from < to){
+                int mid = (from + to) >>> 1;
+                int comparison = comparator.compare(source[mid], key);
+                if(comparison < 0 || (upper && comparison == 0)) from = mid + 1; else to = mid;
+            }
+            return from;
+        }
+    }
+}
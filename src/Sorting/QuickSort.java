@@ -0,0 +1,106 @@
+package Sorting;
+
+import java.util.Comparator;
+
+/*
+    QUICKSORT - O(n log n) on average, O(n^2) in the worst case.
+    Pick a PIVOT element, then PARTITION the array so that everything before the partition point is <= the pivot and
+    everything after it is >= the pivot, and then quicksort the two parts. Each level of partitioning is O(n), and if
+    the pivot splits the array roughly in half there are log n levels -> O(n log n).
+    The worst case is when the pivot is always the smallest or largest element, eg. picking the first element of an
+    already sorted array -> n levels, O(n^2). To avoid that the pivot here is the MEDIAN OF THREE (the first, middle
+    and last elements), which also makes sorted and reversed input the best case rather than the worst.
+    Partitioning uses Hoare's scheme (two indexes moving towards each other, swapping pairs that are on the wrong
+    side), which also splits runs of equal elements evenly.
+    Quicksort is in place, but NOT stable (equal elements can be reordered) -> use MergeSort if that matters.
+    Small ranges are handed to InsertionSort, and the recursion is only on the smaller part (looping on the larger
+    one), so the stack depth is at most log n.
+ */
+public final class QuickSort {
+
+    private QuickSort(){
+    }
+
+    public static void sort(int[] array){
+        sort(array, 0, array.length - 1);
+    }
+
+    public static <T> void sort(T[] array, Comparator<? super T> comparator){
+        sort(array, 0, array.length - 1, comparator);
+    }
+
+    // sorts array[lo, hi] (inclusive).
+    private static void sort(int[] array, int lo, int hi){
+        while(hi - lo >= InsertionSort.THRESHOLD){
+            int split = partition(array, lo, hi);
+            if(split - lo < hi - split){
+                sort(array, lo, split);
+                lo = split + 1;
+            } else {
+                sort(array, split + 1, hi);
+                hi = split;
+            }
+        }
+        InsertionSort.sort(array, lo, hi + 1);
+    }
+
+    // returns the index j such that array[lo, j] <= pivot <= array[j + 1, hi], where lo <= j < hi.
+    private static int partition(int[] array, int lo, int hi){
+        int mid = (lo + hi) >>> 1;
+        // order the three samples, leaving the median in the middle.
+        if(array[mid] < array[lo]) swap(array, mid, lo);
+        if(array[hi] < array[lo]) swap(array, hi, lo);
+        if(array[hi] < array[mid]) swap(array, hi, mid);
+        int pivot = array[mid];
+        int i = lo - 1;
+        int j = hi + 1;
+        while(true){
+            do i++; while(array[i] < pivot);
+            do j--; while(array[j] > pivot);
+            if(i >= j) return j;
+            swap(array, i, j);
+        }
+    }
+
+    private static <T> void sort(T[] array, int lo, int hi, Comparator<? super T> comparator){
+        while(hi - lo >= InsertionSort.THRESHOLD){
+            int split = partition(array, lo, hi, comparator);
+            if(split - lo < hi - split){
+                sort(array, lo, split, comparator);
+                lo = split + 1;
+            } else {
+                sort(array, split + 1, hi, comparator);
+                hi = split;
+            }
+        }
+        InsertionSort.sort(array, lo, hi + 1, comparator);
+    }
+
+    private static <T> int partition(T[] array, int lo, int hi, Comparator<? super T> comparator){
+        int mid = (lo + hi) >>> 1;
+        if(comparator.compare(array[mid], array[lo]) < 0) swap(array, mid, lo);
+        if(comparator.compare(array[hi], array[lo]) < 0) swap(array, hi, lo);
+        if(comparator.compare(array[hi], array[mid]) < 0) swap(array, hi, mid);
+        T pivot = array[mid];
+        int i = lo - 1;
+        int j = hi + 1;
+        while(true){
+            do i++; while(comparator.compare(array[i], pivot) < 0);
+            do j--; while(comparator.compare(array[j], pivot) > 0);
+            if(i >= j) return j;
+            swap(array, i, j);
+        }
+    }
+
+    private static void swap(int[] array, int i, int j){
+        int temp = array[i];
+        array[i] = array[j];
+        array[j] = temp;
+    }
+
+    private static void swap(Object[] array, int i, int j){
+        Object temp = array[i];
+        array[i] = array[j];
+        array[j] = temp;
+    }
+}
@@ -0,0 +1,46 @@
+package Sorting;
+
+import java.util.Arrays;
+
+/*
+    LSD (least significant digit) RADIX SORT - O(n * w), where w is the number of digits in a key.
+    Comparison sorts cannot beat O(n log n), but a radix sort never compares two elements. Instead it sorts by one
+    digit at a time, starting with the least significant, using a COUNTING SORT for each digit;
+        1) count how many elements have each digit value,
+        2) turn the counts into the starting position of each digit value (a running total),
+        3) copy each element to the next free position for its digit.
+    The counting sort is stable, so after sorting by the higher digits the order of the lower digits is kept.
+    Here a digit is a byte, so an int takes 4 passes of O(n) -> O(n), and with 256 counts it stays in the cache.
+    A pass is skipped when every element has the same digit (eg. the top byte of small numbers).
+    Negative numbers -> the top byte is sorted with its sign bit flipped, so that negatives come before positives.
+    Only works on keys that can be split into digits (ints here), and needs a buffer of n elements.
+ */
+public final class RadixSort {
+
+    private RadixSort(){
+    }
+
+    public static void sort(int[] array){
+        int length = array.length;
+        if(length < 2) return;
+        int[] source = array;
+        int[] target = new int[length];
+        int[] counts = new int[257];
+        for(int shift = 0; shift < 32; shift += 8){
+            Arrays.fill(counts, 0);
+            for(int element : source) counts[digit(element, shift) + 1]++;
+            if(counts[digit(source[0], shift) + 1] == length) continue; // every element has the same digit.
+            for(int d = 0; d < 256; d++) counts[d + 1] += counts[d];
+            for(int element : source) target[counts[digit(element, shift)]++] = element;
+            int[] swap = source;
+            source = target;
+            target = swap;
+        }
+        if(source != array) System.arraycopy(source, 0, array, 0, length);
+    }
+
+    private static int digit(int element, int shift){
+        if(shift == 24) element ^= Integer.MIN_VALUE; // flip the sign bit, so negatives sort first.
+        return (element >>> shift) & 0xFF;
+    }
+}
@@ -0,0 +1,174 @@
+package Sorting;
+
+import BigO.Benchmark;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+/*
+    Times each sort on four kinds of input, since the best algorithm depends on the data as much as on n;
+        random          -> uniformly random ints.
+        sorted          -> already in order (the best case for bubblesort and for this mergesort).
+        reversed        -> in descending order (the classic worst case for a naive quicksort pivot).
+        nearly sorted   -> in order apart from 1% of the elements swapped with random others.
+    Each cell is the time for one sort of n elements. Arrays.sort (a dual pivot quicksort for ints) and
+    Arrays.parallelSort are included as a reference, and the generic sorts are measured on Integer[] with
+    Comparator.naturalOrder(). Bubblesort is only run up to BUBBLE_LIMIT elements, since it is O(n^2).
+    The parallel sort is also timed on pools of 1 to N cores to show how it scales.
+
+    Usage: java Sorting.SortBenchmark [sizes...]   (default 1,000 / 100,000 / 10,000,000)
+    eg. java -Xmx8g Sorting.SortBenchmark 100000000 -> 10^8 ints need 400MB for the array, the same again for the
+    copy that each run sorts, and again for the merge buffer.
+ */
+public class SortBenchmark {
+
+    static final int BUBBLE_LIMIT = 20_000;
+    static final int OBJECT_LIMIT = 10_000_000; // the Integer[] rows need ~20 bytes per element, so stop here.
+
+    static final String[] INPUTS = {"random", "sorted", "reversed", "nearly sorted"};
+
+    public static void main(String[] args){
+        int[] sizes = {1_000, 100_000, 10_000_000};
+        if(args.length > 0){
+            sizes = new int[args.length];
+            for(int i = 0; i < args.length; i++) sizes[i] = Integer.parseInt(args[i]);
+        }
+        Map<String, Consumer<int[]>> intSorts = new LinkedHashMap<>();
+        intSorts.put("BubbleSort", BubbleSort::sort);
+        intSorts.put("QuickSort", QuickSort::sort);
+        intSorts.put("MergeSort", MergeSort::sort);
+        intSorts.put("RadixSort", RadixSort::sort);
+        intSorts.put("ParallelMergeSort", ParallelMergeSort::sort);
+        intSorts.put("Arrays.sort", Arrays::sort);
+        intSorts.put("Arrays.parallelSort", Arrays::parallelSort);
+
+        Comparator<Integer> natural = Comparator.naturalOrder();
+        Map<String, Consumer<Integer[]>> objectSorts = new LinkedHashMap<>();
+        objectSorts.put("BubbleSort", array -> BubbleSort.sort(array, natural));
+        objectSorts.put("QuickSort", array -> QuickSort.sort(array, natural));
+        objectSorts.put("MergeSort", array -> MergeSort.sort(array, natural));
+        objectSorts.put("ParallelMergeSort", array -> ParallelMergeSort.sort(array, natural));
+        objectSorts.put("Arrays.sort", array -> Arrays.sort(array, natural));
+
+        for(int size : sizes){
+            System.out.printf("%n======== n = %,d ========%n", size);
+            int[][] inputs = new int[INPUTS.length][];
+            for(int i = 0; i < INPUTS.length; i++) inputs[i] = input(INPUTS[i], size);
+
+            header("int[]");
+            for(Map.Entry<String, Consumer<int[]>> sort : intSorts.entrySet()){
+                if(sort.getKey().equals("BubbleSort") && size > BUBBLE_LIMIT) continue;
+                Benchmark.Result[] cells = new Benchmark.Result[INPUTS.length];
+                for(int i = 0; i < INPUTS.length; i++) cells[i] = time(inputs[i], sort.getValue());
+                row(sort.getKey(), cells);
+            }
+
+            if(size <= OBJECT_LIMIT){
+                header("Integer[]");
+                for(Map.Entry<String, Consumer<Integer[]>> sort : objectSorts.entrySet()){
+                    if(sort.getKey().equals("BubbleSort") && size > BUBBLE_LIMIT) continue;
+                    Benchmark.Result[] cells = new Benchmark.Result[INPUTS.length];
+                    for(int i = 0; i < INPUTS.length; i++) cells[i] = time(boxed(inputs[i]), sort.getValue());
+                    row(sort.getKey(), cells);
+                }
+            }
+
+            scaling(inputs[0]);
+        }
+    }
+
+    // times sorting a fresh copy of the input -> the copy is made outside of the timed region.
+    static Benchmark.Result time(int[] input, Consumer<int[]> sort){
+        return Benchmark.measure(() -> {
+            int[] copy = input.clone();
+            return i -> {
+                sort.accept(copy);
+                return copy[copy.length / 2];
+            };
+        }, 1);
+    }
+
+    static Benchmark.Result time(Integer[] input, Consumer<Integer[]> sort){
+        return Benchmark.measure(() -> {
+            Integer[] copy = input.clone();
+            return i -> {
+                sort.accept(copy);
+                return copy[copy.length / 2];
+            };
+        }, 1);
+    }
+
+    // random input sorted by ParallelMergeSort on a pool of each size from 1 core up to every core.
+    static void scaling(int[] random){
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println();
+        System.out.println("PARALLEL SCALING (random int[])");
+        System.out.println(String.format("%-22s%-16s%-16s", "Cores", "time", "speedup").trim());
+        double single = 0;
+        for(int parallelism = 1; ; parallelism = Math.min(parallelism * 2, cores)){
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                Benchmark.Result result = time(random, array -> ParallelMergeSort.sort(array, pool));
+                if(parallelism == 1) single = result.nanosPerOp();
+                System.out.println(String.format("%-22d%-16s%-16s", parallelism,
+                        Benchmark.formatNanos(result.nanosPerOp()),
+                        String.format("x%.2f", single / result.nanosPerOp())).trim());
+            } finally {
+                pool.shutdown();
+            }
+            if(parallelism == cores) break;
+        }
+    }
+
+    static int[] input(String kind, int size){
+        Random random = new Random(42);
+        int[] input = new int[size];
+        switch(kind){
+            case "random":
+                for(int i = 0; i < size; i++) input[i] = random.nextInt();
+                break;
+            case "sorted":
+                for(int i = 0; i < size; i++) input[i] = i;
+                break;
+            case "reversed":
+                for(int i = 0; i < size; i++) input[i] = size - i;
+                break;
+            default:
+                for(int i = 0; i < size; i++) input[i] = i;
+                for(int swaps = 0; swaps < size / 100; swaps++){
+                    int from = random.nextInt(size);
+                    int to = random.nextInt(size);
+                    int temp = input[from];
+                    input[from] = input[to];
+                    input[to] = temp;
+                }
+        }
+        return input;
+    }
+
+    static Integer[] boxed(int[] input){
+        Integer[] boxed = new Integer[input.length];
+        for(int i = 0; i < input.length; i++) boxed[i] = input[i];
+        return boxed;
+    }
+
+    static void header(String type){
+        System.out.println();
+        System.out.println("SORTING " + type);
+        StringBuilder line = new StringBuilder(String.format("%-22s", "Algorithm"));
+        for(String input : INPUTS) line.append(String.format("%-16s", input));
+        System.out.println(line.toString().trim());
+    }
+
+    // the allocation is left out here, since it is just the merge buffer.
+    static void row(String algorithm, Benchmark.Result[] cells){
+        StringBuilder line = new StringBuilder(String.format("%-22s", algorithm));
+        for(Benchmark.Result cell : cells) line.append(String.format("%-16s", Benchmark.formatNanos(cell.nanosPerOp())));
+        System.out.println(line.toString().trim());
+    }
+}